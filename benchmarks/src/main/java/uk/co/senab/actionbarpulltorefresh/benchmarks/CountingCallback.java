@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import uk.co.senab.actionbarpulltorefresh.core.Clock;
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+
+/**
+ * Stands in for the attacher in the engine-only benchmarks. It does the least work possible,
+ * while still making sure that the callbacks are not optimized away.
+ */
+final class CountingCallback implements PullGestureEngine.Callback {
+
+    static final Clock FIXED_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return 0;
+        }
+    };
+
+    int events;
+    float lastFraction;
+
+    @Override
+    public void onPullStarted() {
+        events++;
+    }
+
+    @Override
+    public void onPulled(float fraction) {
+        lastFraction = fraction;
+        events++;
+    }
+
+    @Override
+    public void onPrepareRefresh() {
+        events++;
+    }
+
+    @Override
+    public void onReleaseToRefresh() {
+        events++;
+    }
+
+    @Override
+    public void onRefreshRequested() {
+        events++;
+    }
+
+    @Override
+    public void onPullEnded() {
+        events++;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import uk.co.senab.actionbarpulltorefresh.core.ClassResolver;
+
+/**
+ * Delegate resolution, as done by {@code InstanceCreationUtils.getViewDelegate()}. A small
+ * class hierarchy stands in for the View classes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DelegateResolutionBenchmark {
+
+    interface Scrollable {}
+    static class View {}
+    static class ViewGroup extends View {}
+    static class AbsListView extends ViewGroup {}
+    static class ListView extends AbsListView {}
+    static class AppListView extends ListView {}
+    static class CustomScroller extends ViewGroup implements Scrollable {}
+    static class UnknownView extends ViewGroup {}
+
+    private static final Object FALLBACK = new Object();
+
+    private HashMap<Class<?>, Object> mBuiltIns;
+    private HashMap<Class<?>, Object> mOverrides;
+    private HashMap<Class<?>, Object> mCache;
+
+    @Setup
+    public void setup() {
+        // The same shape as the built-in delegates: a few classes and an interface
+        mBuiltIns = new HashMap<Class<?>, Object>();
+        mBuiltIns.put(AbsListView.class, new Object());
+        mBuiltIns.put(Scrollable.class, new Object());
+        mBuiltIns.put(String.class, new Object());
+
+        mOverrides = new HashMap<Class<?>, Object>();
+        mOverrides.put(CustomScroller.class, new Object());
+
+        mCache = new HashMap<Class<?>, Object>();
+        ClassResolver.resolve(AppListView.class, mOverrides, mBuiltIns, FALLBACK, mCache);
+    }
+
+    /**
+     * The usual case, once a View class has been seen.
+     */
+    @Benchmark
+    public Object cached() {
+        return ClassResolver.resolve(AppListView.class, mOverrides, mBuiltIns, FALLBACK, mCache);
+    }
+
+    /**
+     * Walking up the superclasses to a registered class.
+     */
+    @Benchmark
+    public Object uncachedSuperclass() {
+        mCache.clear();
+        return ClassResolver.resolve(AppListView.class, mOverrides, mBuiltIns, FALLBACK, mCache);
+    }
+
+    /**
+     * Walking the whole hierarchy and every registered interface, then falling back.
+     */
+    @Benchmark
+    public Object uncachedFallback() {
+        mCache.clear();
+        return ClassResolver.resolve(UnknownView.class, mOverrides, mBuiltIns, FALLBACK, mCache);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+
+/**
+ * Engine-only microbenchmark of ACTION_MOVE: a whole pull gesture of {@link #MOVES} moves below
+ * the refresh threshold, so that every move goes through onPull() and onPulled(). Results are
+ * per event.
+ * <p/>
+ * The engine calls back into a {@link CountingCallback} rather than the attacher, so the cost of
+ * updating the HeaderTransformer and its Views on each move is not included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EnginePullMoveBenchmark {
+
+    private static final int MOVES = 100;
+    private static final int TOUCH_SLOP = 16;
+    private static final float SCROLL_NEEDED = 1000f;
+
+    /**
+     * The speculative refresh fraction, as it adds a velocity check to every move.
+     */
+    @Param({"0", "0.6"})
+    float speculativeFraction;
+
+    private PullGestureEngine mEngine;
+    private CountingCallback mCallback;
+
+    @Setup
+    public void setup() {
+        mCallback = new CountingCallback();
+        mEngine = new PullGestureEngine(TOUCH_SLOP, false, 1000, speculativeFraction,
+                CountingCallback.FIXED_CLOCK, mCallback);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES + 3)
+    public int pull() {
+        final PullGestureEngine engine = mEngine;
+        final float x = 240f;
+        float y = 100f;
+        long time = 0;
+
+        // Start the pull, as the attacher's layout would
+        engine.onInterceptTouchEvent(PullGestureEngine.ACTION_DOWN, x, y, true);
+        y += TOUCH_SLOP + 1;
+        engine.onInterceptTouchEvent(PullGestureEngine.ACTION_MOVE, x, y, false);
+
+        for (int i = 0; i < MOVES; i++) {
+            y += 1f;
+            time += 8;
+            engine.onTouchEvent(PullGestureEngine.ACTION_MOVE, x, y, time, false,
+                    SCROLL_NEEDED);
+        }
+
+        engine.onTouchEvent(PullGestureEngine.ACTION_UP, x, y, time, false, SCROLL_NEEDED);
+        return mCallback.events;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+
+/**
+ * Engine-only microbenchmark of ACTION_DOWN: the engine's handling of the event, and resetting
+ * it afterwards. It does not include the attacher finding the View under the touch, nor asking
+ * its ViewDelegate whether it is ready for a pull, as those need a real View hierarchy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EngineTouchDownBenchmark {
+
+    /**
+     * Whether the attacher found a View which is ready for a pull.
+     */
+    @Param({"true", "false"})
+    boolean viewReady;
+
+    private PullGestureEngine mEngine;
+
+    @Setup
+    public void setup() {
+        mEngine = new PullGestureEngine(16, false, 1000, 0f, CountingCallback.FIXED_CLOCK,
+                new CountingCallback());
+    }
+
+    @Benchmark
+    public boolean actionDown() {
+        final boolean dragged = mEngine.onInterceptTouchEvent(PullGestureEngine.ACTION_DOWN,
+                240f, 150f, viewReady);
+        mEngine.resetTouch();
+        return dragged;
+    }
+}
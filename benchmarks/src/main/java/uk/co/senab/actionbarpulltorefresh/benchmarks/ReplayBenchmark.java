@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+import uk.co.senab.actionbarpulltorefresh.core.RecordingReplayer;
+import uk.co.senab.actionbarpulltorefresh.core.TouchRecording;
+import uk.co.senab.actionbarpulltorefresh.core.VirtualClock;
+
+/**
+ * Replays a recorded gesture through the engine under a virtual clock. Results are per gesture.
+ * <p/>
+ * Pass a recording captured with the library's TouchRecorder with
+ * {@code -Pjmh='ReplayBenchmark -p recording=/path/to/file'}. Without one, a synthetic pull
+ * which crosses the refresh threshold is replayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReplayBenchmark {
+
+    private static final int TOUCH_SLOP = 16;
+    private static final float SCROLL_NEEDED = 400f;
+
+    @Param({""})
+    String recording;
+
+    private TouchRecording mRecording;
+    private VirtualClock mClock;
+    private PullGestureEngine mEngine;
+    private CountingCallback mCallback;
+
+    @Setup
+    public void setup() throws IOException {
+        if (recording.length() > 0) {
+            final InputStream in = new FileInputStream(recording);
+            try {
+                mRecording = TouchRecording.readFrom(in);
+            } finally {
+                in.close();
+            }
+        } else {
+            mRecording = createSyntheticPull();
+        }
+
+        mClock = new VirtualClock(0);
+        mCallback = new CountingCallback();
+        mEngine = new PullGestureEngine(TOUCH_SLOP, true, 1000, 0.6f, mClock, mCallback);
+    }
+
+    @Benchmark
+    public int replay() {
+        RecordingReplayer.replay(mRecording, mEngine, mClock, true, SCROLL_NEEDED);
+        // Complete any refresh which was started, ready for the next gesture
+        mEngine.setRefreshing(false);
+        return mCallback.events;
+    }
+
+    /**
+     * A 500ms pull at 60 events per second, with two batched samples per move as a touch
+     * screen sampling at 180Hz would deliver.
+     */
+    static TouchRecording createSyntheticPull() {
+        final TouchRecording recording = new TouchRecording();
+        final float x = 240f;
+        float y = 100f;
+        long time = 1000;
+
+        recording.addEvent(TouchRecording.DISPATCH_INTERCEPT, PullGestureEngine.ACTION_DOWN,
+                time, x, y + 200f, x, y);
+        y += TOUCH_SLOP + 1;
+        time += 16;
+        recording.addEvent(TouchRecording.DISPATCH_INTERCEPT, PullGestureEngine.ACTION_MOVE,
+                time, x, y + 200f, x, y);
+
+        for (int i = 0; i < 30; i++) {
+            final long lastTime = time;
+            final float lastY = y;
+            y += 15f;
+            time += 16;
+            recording.addEvent(TouchRecording.DISPATCH_TOUCH, PullGestureEngine.ACTION_MOVE,
+                    time, x, y + 200f, x, y);
+            recording.addHistorical(lastTime + 5, x, lastY + 5f);
+            recording.addHistorical(lastTime + 11, x, lastY + 10f);
+        }
+
+        recording.addEvent(TouchRecording.DISPATCH_TOUCH, PullGestureEngine.ACTION_UP, time,
+                x, y + 200f, x, y);
+        return recording;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.benchmarks;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import uk.co.senab.actionbarpulltorefresh.core.EventJournal;
+import uk.co.senab.actionbarpulltorefresh.core.LatencyHistogram;
+import uk.co.senab.actionbarpulltorefresh.core.LatencyTracker;
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+import uk.co.senab.actionbarpulltorefresh.core.VirtualClock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Replays full pull/refresh cycles through {@link PullGestureEngine} and fails if the
+ * steady-state MOVE phase allocates more than {@link #MOVE_PHASE_BUDGET_BYTES}.
+ * <p/>
+ * This only covers the platform-free part of a move: the engine, plus a callback which does the
+ * same {@link EventJournal} and {@link LatencyTracker} bookkeeping as PullToRefreshAttacher's
+ * engine callback. The attacher itself, the views and the HeaderTransformer need a device, so
+ * their allocations are not checked here.
+ * <p/>
+ * The cycle is: ACTION_DOWN, a touch slop crossing, {@link #MOVES} ACTION_MOVEs which pass the
+ * speculative fraction and the threshold, ACTION_UP (so a refresh starts, as refreshOnUp is
+ * enabled), then complete once the engine reports that the refresh is due to be minimized.
+ */
+public class MoveAllocationTest {
+
+    /**
+     * Allowed allocations for the whole MOVE phase. Any allocation per move would multiply into
+     * GC pressure while scrolling, so this is zero.
+     */
+    private static final long MOVE_PHASE_BUDGET_BYTES = 0;
+
+    private static final int MOVES = 200;
+    private static final int WARMUP_CYCLES = 20000;
+    private static final int MEASURED_CYCLES = 100;
+
+    private static final int TOUCH_SLOP = 16;
+    private static final long MINIMIZE_DELAY = 1000;
+    private static final float SCROLL_NEEDED = MOVES / 2f;
+
+    @Test
+    public void movePhaseStaysWithinAllocationBudget() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation counting is not supported by this JVM",
+                bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("Thread allocation counting is not supported by this JVM",
+                threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        final long threadId = Thread.currentThread().getId();
+
+        final Cycle cycle = new Cycle();
+        for (int i = 0; i < WARMUP_CYCLES; i++) {
+            cycle.run(null, 0);
+        }
+
+        // Find the cost of reading the counter itself, so that it can be taken off
+        final long overhead = -threads.getThreadAllocatedBytes(threadId)
+                + threads.getThreadAllocatedBytes(threadId);
+
+        long worst = 0;
+        for (int i = 0; i < MEASURED_CYCLES; i++) {
+            worst = Math.max(worst, cycle.run(threads, threadId) - overhead);
+        }
+
+        assertTrue("MOVE phase of " + MOVES + " moves allocated " + worst + " bytes (budget "
+                + MOVE_PHASE_BUDGET_BYTES + ")", worst <= MOVE_PHASE_BUDGET_BYTES);
+
+        // Make sure that the cycles really went through every callback
+        assertTrue(cycle.mPulls > 0);
+        assertEquals(WARMUP_CYCLES + MEASURED_CYCLES, cycle.mTimeToThreshold.getCount());
+        assertEquals(WARMUP_CYCLES + MEASURED_CYCLES, cycle.mRefreshDuration.getCount());
+    }
+
+    /**
+     * The engine and a callback which journals and times the pull as the attacher does.
+     */
+    private static final class Cycle implements PullGestureEngine.Callback {
+        private final VirtualClock mClock = new VirtualClock(0);
+        private final EventJournal mEventJournal = new EventJournal(64);
+
+        final LatencyHistogram mTimeToThreshold = new LatencyHistogram();
+        final LatencyHistogram mRefreshDuration = new LatencyHistogram();
+        private final LatencyTracker mLatencyTracker = new LatencyTracker(new LatencyHistogram(),
+                new LatencyHistogram(), mTimeToThreshold, new LatencyHistogram(),
+                new LatencyHistogram(), mRefreshDuration);
+
+        private final PullGestureEngine mEngine;
+
+        private float mPullFraction;
+        int mPulls;
+
+        Cycle() {
+            mEngine = new PullGestureEngine(TOUCH_SLOP, true, MINIMIZE_DELAY, 0.6f, mClock, this);
+        }
+
+        /**
+         * Run one cycle.
+         *
+         * @return The bytes allocated during the MOVE phase, if {@code threads} is not null.
+         */
+        long run(com.sun.management.ThreadMXBean threads, long threadId) {
+            final PullGestureEngine engine = mEngine;
+            final float x = 240f;
+            float y = 100f;
+
+            mLatencyTracker.onDown(mClock.uptimeMillis());
+            engine.onInterceptTouchEvent(PullGestureEngine.ACTION_DOWN, x, y, true);
+            y += TOUCH_SLOP + 1;
+            mClock.advance(8);
+            engine.onInterceptTouchEvent(PullGestureEngine.ACTION_MOVE, x, y, false);
+
+            final long before = threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+            for (int i = 0; i < MOVES; i++) {
+                y += 1f;
+                mClock.advance(8);
+                engine.onTouchEvent(PullGestureEngine.ACTION_MOVE, x, y, mClock.uptimeMillis(),
+                        false, SCROLL_NEEDED);
+            }
+            final long after = threads != null ? threads.getThreadAllocatedBytes(threadId) : 0;
+
+            engine.onTouchEvent(PullGestureEngine.ACTION_UP, x, y, mClock.uptimeMillis(), false,
+                    SCROLL_NEEDED);
+            if (!engine.isRefreshing()) {
+                throw new IllegalStateException("The pull did not start a refresh");
+            }
+
+            // Complete once the refresh is due to be minimized
+            mClock.advance(MINIMIZE_DELAY);
+            if (engine.getMinimizeDelay() > 0) {
+                throw new IllegalStateException("The refresh was not due to be minimized");
+            }
+            engine.setRefreshing(false);
+            mLatencyTracker.onRefreshComplete(mClock.uptimeMillis());
+            journal(EventJournal.EVENT_REFRESH_COMPLETE);
+            mPullFraction = 0f;
+
+            return after - before;
+        }
+
+        private void journal(int code) {
+            mEventJournal.record(mClock.uptimeMillis(), code, mPullFraction, 0);
+        }
+
+        @Override
+        public void onPullStarted() {
+            journal(EventJournal.EVENT_PULL_STARTED);
+            mLatencyTracker.onPullStarted(mClock.uptimeMillis());
+        }
+
+        @Override
+        public void onPulled(float fraction) {
+            mPullFraction = fraction;
+            mPulls++;
+        }
+
+        @Override
+        public void onPrepareRefresh() {
+            if (mEventJournal.getLastCode() != EventJournal.EVENT_PREPARE_REFRESH) {
+                journal(EventJournal.EVENT_PREPARE_REFRESH);
+            }
+        }
+
+        @Override
+        public void onReleaseToRefresh() {
+            if (mEventJournal.getLastCode() != EventJournal.EVENT_RELEASE_TO_REFRESH) {
+                journal(EventJournal.EVENT_RELEASE_TO_REFRESH);
+            }
+            mLatencyTracker.onThresholdReached(mClock.uptimeMillis());
+        }
+
+        @Override
+        public void onRefreshRequested() {
+            mLatencyTracker.onThresholdReached(mClock.uptimeMillis());
+            mEngine.setRefreshing(true);
+            journal(EventJournal.EVENT_REFRESH_STARTED_FROM_TOUCH);
+            mLatencyTracker.onRefreshStarted(mClock.uptimeMillis(), true);
+        }
+
+        @Override
+        public void onPullEnded() {
+            journal(EventJournal.EVENT_PULL_ENDED);
+            mLatencyTracker.onPullEnded();
+        }
+    }
+}
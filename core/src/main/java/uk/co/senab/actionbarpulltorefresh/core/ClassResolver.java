@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the value registered for a class, such as the ViewDelegate for a View class, where
+ * values may be registered against any of its superclasses or interfaces.
+ */
+public final class ClassResolver {
+
+    private ClassResolver() {
+    }
+
+    /**
+     * Resolve the value for {@code clazz}, caching the result so that subsequent lookups for the
+     * same class are a single hash lookup with no reflection.
+     *
+     * @param overrides Registrations which take precedence over {@code registered}. May be null.
+     * @param registered Map of class (or interface) to value.
+     * @param fallback Returned if nothing is registered for {@code clazz}.
+     * @param cache Map of concrete class to resolved value.
+     */
+    public static <T> T resolve(Class<?> clazz, Map<Class<?>, T> overrides,
+            Map<Class<?>, T> registered, T fallback, Map<Class<?>, T> cache) {
+        T value = cache.get(clazz);
+        if (value == null) {
+            if (overrides != null) {
+                value = findRegistered(clazz, overrides);
+            }
+            if (value == null) {
+                value = findRegistered(clazz, registered);
+            }
+            if (value == null) {
+                value = fallback;
+            }
+            cache.put(clazz, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return The value registered for the most specific class of {@code clazz}, or one
+     *         registered for an interface it implements.
+     */
+    public static <T> T findRegistered(Class<?> clazz, Map<Class<?>, T> registered) {
+        // Walk up the class hierarchy so that the most specific registration wins
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            final T value = registered.get(c);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        // Finally check for any registered interfaces
+        final Set<Map.Entry<Class<?>, T>> entries = registered.entrySet();
+        for (final Map.Entry<Class<?>, T> entry : entries) {
+            if (entry.getKey().isAssignableFrom(clazz)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import java.io.PrintWriter;
+
+/**
+ * A fixed-capacity ring buffer of refresh state transitions. Each record is a timestamp, an
+ * event code, the pull fraction at the time and a view id, stored in primitive arrays so that
+ * recording never allocates. Once full, the oldest records are overwritten.
+ * <p/>
+ * Dump it with {@link #dump(PrintWriter, long)} to diagnose refreshes which get stuck. Instances are
+ * not thread-safe.
+ */
+public final class EventJournal {
+
+    /* Event codes */
+    public static final int EVENT_PULL_STARTED = 1;
+    public static final int EVENT_PREPARE_REFRESH = 2;
+    public static final int EVENT_RELEASE_TO_REFRESH = 3;
+    public static final int EVENT_PULL_ENDED = 4;
+    public static final int EVENT_REFRESH_STARTED = 5;
+    public static final int EVENT_REFRESH_STARTED_FROM_TOUCH = 6;
+    public static final int EVENT_REFRESH_QUEUED = 7;
+    public static final int EVENT_LISTENER_CALLED = 8;
+    public static final int EVENT_HEADER_SHOWN = 9;
+    public static final int EVENT_HEADER_MINIMIZED = 10;
+    public static final int EVENT_HEADER_HIDDEN = 11;
+    public static final int EVENT_REFRESH_COMPLETE = 12;
+    public static final int EVENT_RESET = 13;
+    public static final int EVENT_DESTROYED = 14;
+
+    private static final String[] EVENT_NAMES = {
+            null,
+            "PULL_STARTED",
+            "PREPARE_REFRESH",
+            "RELEASE_TO_REFRESH",
+            "PULL_ENDED",
+            "REFRESH_STARTED",
+            "REFRESH_STARTED_FROM_TOUCH",
+            "REFRESH_QUEUED",
+            "LISTENER_CALLED",
+            "HEADER_SHOWN",
+            "HEADER_MINIMIZED",
+            "HEADER_HIDDEN",
+            "REFRESH_COMPLETE",
+            "RESET",
+            "DESTROYED",
+    };
+
+    private final long[] mTimes;
+    private final int[] mCodes;
+    private final float[] mFractions;
+    private final int[] mViewIds;
+
+    // The index which the next record is written to, and the number of records held
+    private int mNext;
+    private int mSize;
+
+    public EventJournal(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        mTimes = new long[capacity];
+        mCodes = new int[capacity];
+        mFractions = new float[capacity];
+        mViewIds = new int[capacity];
+    }
+
+    /**
+     * Record an event, overwriting the oldest record if the journal is full.
+     */
+    public void record(long time, int code, float fraction, int viewId) {
+        final int i = mNext;
+        mTimes[i] = time;
+        mCodes[i] = code;
+        mFractions[i] = fraction;
+        mViewIds[i] = viewId;
+
+        mNext = (i + 1) % mTimes.length;
+        if (mSize < mTimes.length) {
+            mSize++;
+        }
+    }
+
+    /**
+     * @return The number of records held.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The code of the most recent record, or 0 if the journal is empty.
+     */
+    public int getLastCode() {
+        return mSize > 0 ? mCodes[indexOf(mSize - 1)] : 0;
+    }
+
+    /* Accessors for the record at {@code position}, where 0 is the oldest */
+
+    public long getTime(int position) {
+        return mTimes[indexOf(position)];
+    }
+
+    public int getCode(int position) {
+        return mCodes[indexOf(position)];
+    }
+
+    public float getFraction(int position) {
+        return mFractions[indexOf(position)];
+    }
+
+    public int getViewId(int position) {
+        return mViewIds[indexOf(position)];
+    }
+
+    /**
+     * Discard every record.
+     */
+    public void clear() {
+        mNext = 0;
+        mSize = 0;
+    }
+
+    /**
+     * Write every record, oldest first, with times relative to {@code now}.
+     */
+    public void dump(PrintWriter writer, long now) {
+        writer.println("EventJournal: " + mSize + " events");
+        for (int i = 0; i < mSize; i++) {
+            final int code = getCode(i);
+            final String name = code > 0 && code < EVENT_NAMES.length
+                    ? EVENT_NAMES[code] : String.valueOf(code);
+            writer.println("  " + (getTime(i) - now) + "ms " + name
+                    + " fraction=" + getFraction(i)
+                    + " view=0x" + Integer.toHexString(getViewId(i)));
+        }
+        writer.flush();
+    }
+
+    private int indexOf(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + mSize);
+        }
+        return (mNext - mSize + position + mTimes.length) % mTimes.length;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * A fixed-size histogram of millisecond latencies, which can be read as percentiles. Recording
+ * a value is a few arithmetic operations and never allocates.
+ * <p/>
+ * Values below {@value #LINEAR_BUCKETS}ms are recorded exactly. Above that each power of two is
+ * split into {@value #SUB_BUCKETS} buckets, so the reported values are within about 6% of the
+ * recorded ones. Values above {@link #MAX_VALUE} are recorded as {@link #MAX_VALUE}.
+ * <p/>
+ * Instances are not thread-safe.
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int LINEAR_BITS = 5; // log2(LINEAR_BUCKETS)
+    private static final int SUB_BUCKET_BITS = 4; // log2(SUB_BUCKETS)
+    private static final int MAX_BITS = 22;
+
+    /**
+     * The largest value which can be recorded, a little over an hour.
+     */
+    public static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS
+            + (MAX_BITS - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final int[] mCounts = new int[BUCKET_COUNT];
+    private int mTotalCount;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax = Long.MIN_VALUE;
+    private long mSum;
+
+    /**
+     * Record a latency, in milliseconds. Negative values are ignored.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+
+        mCounts[bucketFor(value)]++;
+        mTotalCount++;
+        mSum += value;
+        if (value < mMin) mMin = value;
+        if (value > mMax) mMax = value;
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public int getCount() {
+        return mTotalCount;
+    }
+
+    /**
+     * @return The smallest value recorded, or -1 if none have been.
+     */
+    public long getMin() {
+        return mTotalCount > 0 ? mMin : -1;
+    }
+
+    /**
+     * @return The largest value recorded, or -1 if none have been.
+     */
+    public long getMax() {
+        return mTotalCount > 0 ? mMax : -1;
+    }
+
+    /**
+     * @return The mean of the values recorded, or -1 if none have been.
+     */
+    public long getMean() {
+        return mTotalCount > 0 ? mSum / mTotalCount : -1;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100. For example 50 for the median.
+     * @return The value below which {@code percentile}% of the recorded values fall, or -1 if
+     *         none have been recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (mTotalCount == 0) {
+            return -1;
+        }
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100d * mTotalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                // Report the top of the bucket, but never more than was actually recorded
+                return Math.max(mMin, Math.min(mMax, highestValueIn(i)));
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Add every value recorded in {@code other} to this histogram.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.mTotalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] += other.mCounts[i];
+        }
+        mTotalCount += other.mTotalCount;
+        mSum += other.mSum;
+        mMin = Math.min(mMin, other.mMin);
+        mMax = Math.max(mMax, other.mMax);
+    }
+
+    /**
+     * Discard every value recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mTotalCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = Long.MIN_VALUE;
+    }
+
+    static int bucketFor(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // The highest bit picks the power of two, the next SUB_BUCKET_BITS pick the bucket in it
+        final int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = highestBit - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (highestBit - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        final int highestBit = LINEAR_BITS + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        final int shift = highestBit - SUB_BUCKET_BITS;
+        final long subBucket = SUB_BUCKETS + (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
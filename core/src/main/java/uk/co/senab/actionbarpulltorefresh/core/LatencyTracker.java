@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * Times the gestures and refreshes of one PullToRefreshAttacher, and records them into a set of
+ * {@link LatencyHistogram}s, which may be shared with other trackers. Every time should be from
+ * the attacher's {@link Clock}. Recording never allocates.
+ */
+public final class LatencyTracker {
+
+    private static final long UNSET = -1;
+
+    private final LatencyHistogram mTimeToPullStarted;
+    private final LatencyHistogram mTimeToFeedback;
+    private final LatencyHistogram mTimeToThreshold;
+    private final LatencyHistogram mTimeToRefreshStarted;
+    private final LatencyHistogram mTimeToRefreshFeedback;
+    private final LatencyHistogram mRefreshDuration;
+
+    // Timestamps for the current gesture and refresh
+    private long mDownTime = UNSET;
+    private long mPullStartedTime = UNSET;
+    private long mThresholdTime = UNSET;
+    private long mRefreshStartedTime = UNSET;
+    private long mRefreshShownTime = UNSET;
+
+    public LatencyTracker(LatencyHistogram timeToPullStarted, LatencyHistogram timeToFeedback,
+            LatencyHistogram timeToThreshold, LatencyHistogram timeToRefreshStarted,
+            LatencyHistogram timeToRefreshFeedback, LatencyHistogram refreshDuration) {
+        mTimeToPullStarted = timeToPullStarted;
+        mTimeToFeedback = timeToFeedback;
+        mTimeToThreshold = timeToThreshold;
+        mTimeToRefreshStarted = timeToRefreshStarted;
+        mTimeToRefreshFeedback = timeToRefreshFeedback;
+        mRefreshDuration = refreshDuration;
+    }
+
+    public void onDown(long time) {
+        mDownTime = time;
+        mPullStartedTime = mThresholdTime = UNSET;
+    }
+
+    public void onPullStarted(long time) {
+        if (mDownTime != UNSET) {
+            mTimeToPullStarted.record(time - mDownTime);
+        }
+        mPullStartedTime = time;
+    }
+
+    public void onHeaderFirstDrawn(long time) {
+        // Only the first header frame of a gesture counts
+        if (mDownTime != UNSET) {
+            mTimeToFeedback.record(time - mDownTime);
+            mDownTime = UNSET;
+        }
+    }
+
+    public void onThresholdReached(long time) {
+        if (mThresholdTime == UNSET && mPullStartedTime != UNSET) {
+            mTimeToThreshold.record(time - mPullStartedTime);
+            mThresholdTime = time;
+        }
+    }
+
+    /**
+     * @param fromListener true if the OnRefreshListener is being called, false if the refresh
+     *                     state and header have just been switched to refreshing.
+     */
+    public void onRefreshStarted(long time, boolean fromListener) {
+        if (!fromListener) {
+            mRefreshShownTime = time;
+        }
+        if (fromListener && mThresholdTime != UNSET) {
+            mTimeToRefreshStarted.record(time - mThresholdTime);
+            mThresholdTime = UNSET;
+        }
+        if (fromListener || mRefreshStartedTime == UNSET) {
+            mRefreshStartedTime = time;
+        }
+    }
+
+    public void onRefreshFirstDrawn(long time) {
+        if (mRefreshShownTime != UNSET) {
+            mTimeToRefreshFeedback.record(time - mRefreshShownTime);
+            mRefreshShownTime = UNSET;
+        }
+    }
+
+    public void onRefreshComplete(long time) {
+        mRefreshShownTime = UNSET;
+        if (mRefreshStartedTime != UNSET) {
+            mRefreshDuration.record(time - mRefreshStartedTime);
+            mRefreshStartedTime = UNSET;
+        }
+    }
+
+    public void onUp() {
+        // A tap which never became a pull
+        if (mPullStartedTime == UNSET) {
+            mDownTime = UNSET;
+        }
+    }
+
+    public void onPullEnded() {
+        mDownTime = mPullStartedTime = UNSET;
+    }
+}
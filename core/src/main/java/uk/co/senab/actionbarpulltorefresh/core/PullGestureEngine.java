@@ -0,0 +1,425 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * The platform-free core of pull-to-refresh. It is fed primitive touch samples (or nested scroll
+ * distances) and calls its {@link Callback} as the pull moves through its states. It knows
+ * nothing about Views, so finding the view being pulled and computing its refresh threshold is
+ * left to the caller.
+ * <p/>
+ * Instances are not thread-safe. On Android they should only be used from the main thread.
+ */
+public final class PullGestureEngine {
+
+    /* Touch actions, which have the same values as MotionEvent's */
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+
+    /**
+     * How far ahead (in ms) the current pull velocity is projected when deciding whether a pull
+     * is likely to reach the refresh threshold.
+     */
+    static final long SPECULATIVE_LOOKAHEAD_MS = 200;
+
+    /**
+     * Receives the state transitions of the engine.
+     */
+    public interface Callback {
+
+        /**
+         * The user has started pulling.
+         */
+        public void onPullStarted();
+
+        /**
+         * The user has pulled {@code fraction} (0.0f to 1.0f) of the way to the refresh
+         * threshold.
+         */
+        public void onPulled(float fraction);
+
+        /**
+         * The pull is moving fast enough that it will probably reach the refresh threshold, so a
+         * refresh may be prepared. This is only called if a speculative fraction has been set,
+         * and may be called for each sample until the pull ends.
+         */
+        public void onPrepareRefresh();
+
+        /**
+         * The user has pulled past the refresh threshold, and a refresh will be requested when
+         * they release. Only called when refreshOnUp is enabled.
+         */
+        public void onReleaseToRefresh();
+
+        /**
+         * The pull has reached the refresh threshold, so a refresh should be started. The caller
+         * should then call {@link #setRefreshing(boolean)}.
+         */
+        public void onRefreshRequested();
+
+        /**
+         * The pull has ended without requesting a refresh.
+         */
+        public void onPullEnded();
+    }
+
+    private final int mTouchSlop;
+    private final boolean mRefreshOnUp;
+    private final long mRefreshMinimizeDelay;
+    private final float mSpeculativeRefreshFraction;
+    private final Clock mClock;
+    private final Callback mCallback;
+
+    private float mInitialMotionY, mLastMotionY, mPullBeginY;
+    private float mInitialMotionX;
+    private boolean mIsBeingDragged, mHandlingTouchEventFromDown;
+
+    private float mNestedPullDistance;
+    private float mLastSampleY, mPullVelocity;
+    private long mLastSampleTime;
+
+    private boolean mIsRefreshing;
+    private long mRefreshStartTime;
+
+    /**
+     * @param touchSlop                  Distance (in px) a touch can move before it is a pull.
+     * @param refreshOnUp                Whether a refresh is only requested once the user
+     *                                   releases.
+     * @param refreshMinimizeDelay       Time (in ms) after a refresh starts that it should be
+     *                                   minimized.
+     * @param speculativeRefreshFraction Fraction of the refresh threshold after which
+     *                                   {@link Callback#onPrepareRefresh()} may be called, or 0
+     *                                   to disable.
+     */
+    public PullGestureEngine(int touchSlop, boolean refreshOnUp, long refreshMinimizeDelay,
+            float speculativeRefreshFraction, Clock clock, Callback callback) {
+        if (clock == null || callback == null) {
+            throw new IllegalArgumentException("clock and callback cannot be null");
+        }
+        mTouchSlop = touchSlop;
+        mRefreshOnUp = refreshOnUp;
+        mRefreshMinimizeDelay = refreshMinimizeDelay;
+        mSpeculativeRefreshFraction = speculativeRefreshFraction;
+        mClock = clock;
+        mCallback = callback;
+        resetTouch();
+    }
+
+    /**
+     * Feed a touch sample which is being intercepted (i.e. before a pull has started).
+     *
+     * @param readyForPull For {@link #ACTION_DOWN}, whether the touch is on a view which is ready
+     *                     to be pulled. Ignored for other actions.
+     * @return true if a pull is now in progress, and the rest of the gesture should be given to
+     *         {@link #onTouchEvent(int, float, float, long, boolean, float)}.
+     */
+    public boolean onInterceptTouchEvent(int action, float x, float y, boolean readyForPull) {
+        // If we're currently refreshing don't handle any touch events
+        if (mIsRefreshing) {
+            return false;
+        }
+
+        switch (action) {
+            case ACTION_MOVE: {
+                // We're not currently being dragged so check to see if the user has
+                // scrolled enough
+                if (!mIsBeingDragged && mInitialMotionY > 0f) {
+                    final float yDiff = y - mInitialMotionY;
+                    final float xDiff = x - mInitialMotionX;
+
+                    if (Math.abs(yDiff) > Math.abs(xDiff) && yDiff > mTouchSlop) {
+                        mIsBeingDragged = true;
+                        onPullStarted(y);
+                    } else if (yDiff < -mTouchSlop) {
+                        resetTouch();
+                    }
+                }
+                break;
+            }
+
+            case ACTION_DOWN: {
+                if (readyForPull) {
+                    mInitialMotionX = x;
+                    mInitialMotionY = y;
+                }
+                break;
+            }
+
+            case ACTION_CANCEL:
+            case ACTION_UP: {
+                resetTouch();
+                break;
+            }
+        }
+
+        return mIsBeingDragged;
+    }
+
+    /**
+     * Feed a touch sample which is being handled.
+     *
+     * @param readyForPull   For {@link #ACTION_DOWN}, whether the touch is on a view which is
+     *                       ready to be pulled. Ignored for other actions.
+     * @param scrollNeeded   Distance (in px) the user needs to pull to request a refresh, or
+     *                       0 if there is no view being pulled.
+     * @return false if the sample was not handled.
+     */
+    public boolean onTouchEvent(int action, float x, float y, long eventTime,
+            boolean readyForPull, float scrollNeeded) {
+        // Record whether our handling is started from ACTION_DOWN
+        if (action == ACTION_DOWN) {
+            mHandlingTouchEventFromDown = true;
+        }
+
+        // If we're being called from ACTION_DOWN then we must call through to
+        // onInterceptTouchEvent until it sets mIsBeingDragged
+        if (mHandlingTouchEventFromDown && !mIsBeingDragged) {
+            onInterceptTouchEvent(action, x, y, readyForPull);
+            return true;
+        }
+
+        if (scrollNeeded <= 0f) {
+            return false;
+        }
+
+        switch (action) {
+            case ACTION_MOVE: {
+                // If we're already refreshing ignore it
+                if (mIsRefreshing) {
+                    return false;
+                }
+
+                updatePullVelocity(y, eventTime);
+
+                if (mIsBeingDragged && y != mLastMotionY) {
+                    final float yDx = y - mLastMotionY;
+
+                    /**
+                     * Check to see if the user is scrolling the right direction
+                     * (down). We allow a small scroll up which is the check against
+                     * negative touch slop.
+                     */
+                    if (yDx >= -mTouchSlop) {
+                        onPull(y, scrollNeeded);
+                        // Only record the y motion if the user has scrolled down.
+                        if (yDx > 0f) {
+                            mLastMotionY = y;
+                        }
+                    } else {
+                        onPullEnded();
+                        resetTouch();
+                    }
+                }
+                break;
+            }
+
+            case ACTION_CANCEL:
+            case ACTION_UP: {
+                checkScrollForRefresh(scrollNeeded);
+                if (mIsBeingDragged) {
+                    onPullEnded();
+                }
+                resetTouch();
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Feed a nested scroll, where the scrolling view is at the top and the user has pulled
+     * {@code distance} further (or back, if negative).
+     *
+     * @param readyForPull Whether the scrolling view can start a pull. Only used if a pull is
+     *                     not already in progress.
+     * @param scrollNeeded Distance (in px) the user needs to pull to request a refresh.
+     */
+    public void onNestedPull(float distance, long eventTime, boolean readyForPull,
+            float scrollNeeded) {
+        if (mIsRefreshing) return;
+
+        if (!mIsBeingDragged) {
+            // Only start pulling from a view which is ready
+            if (distance <= 0f || !readyForPull) {
+                return;
+            }
+            mIsBeingDragged = true;
+            mNestedPullDistance = 0f;
+            onPullStarted(0f);
+        }
+
+        mNestedPullDistance += distance;
+        if (mNestedPullDistance <= 0f) {
+            // The user has scrolled back to where they started
+            onPullEnded();
+            resetTouch();
+            return;
+        }
+
+        updatePullVelocity(mNestedPullDistance, eventTime);
+        mLastMotionY = mNestedPullDistance;
+        onPull(mNestedPullDistance, scrollNeeded);
+    }
+
+    /**
+     * Called when the nested scroll has stopped, which is the equivalent of ACTION_UP.
+     */
+    public void onNestedPullEnded(float scrollNeeded) {
+        if (mIsBeingDragged) {
+            checkScrollForRefresh(scrollNeeded);
+            if (mIsBeingDragged) {
+                onPullEnded();
+            }
+        }
+        resetTouch();
+    }
+
+    /**
+     * Forget the current gesture.
+     */
+    public void resetTouch() {
+        mIsBeingDragged = false;
+        mHandlingTouchEventFromDown = false;
+        mInitialMotionY = mLastMotionY = mPullBeginY = -1f;
+        mLastSampleY = mPullVelocity = 0f;
+        mLastSampleTime = 0;
+        mNestedPullDistance = 0f;
+    }
+
+    public boolean isBeingDragged() {
+        return mIsBeingDragged;
+    }
+
+    /**
+     * @return The current pull velocity, in px/ms.
+     */
+    public float getPullVelocity() {
+        return mPullVelocity;
+    }
+
+    /**
+     * Set whether a refresh is in progress. Starting a refresh records its start time from the
+     * clock, and the current gesture is forgotten either way.
+     */
+    public void setRefreshing(boolean refreshing) {
+        resetTouch();
+        if (refreshing && !mIsRefreshing) {
+            mRefreshStartTime = mClock.uptimeMillis();
+        }
+        mIsRefreshing = refreshing;
+    }
+
+    public boolean isRefreshing() {
+        return mIsRefreshing;
+    }
+
+    public long getRefreshStartTime() {
+        return mRefreshStartTime;
+    }
+
+    /**
+     * Move the start of the current refresh back to {@code startTime}, for instance when it is
+     * restored from a previous instance.
+     */
+    public void setRefreshStartTime(long startTime) {
+        mRefreshStartTime = startTime;
+    }
+
+    /**
+     * @return The time (in ms) since the current refresh started, or -1 if we are not
+     *         refreshing.
+     */
+    public long getRefreshElapsedTime() {
+        return mIsRefreshing ? mClock.uptimeMillis() - mRefreshStartTime : -1;
+    }
+
+    /**
+     * Move the start of the current refresh so that {@code elapsedTime} has already passed. This
+     * is used when restoring a refresh saved by {@link #getRefreshElapsedTime()}, as the saved
+     * instance's start time may be from a different clock.
+     */
+    public void setRefreshElapsedTime(long elapsedTime) {
+        mRefreshStartTime = mClock.uptimeMillis() - elapsedTime;
+    }
+
+    /**
+     * @return The time (in ms) until the current refresh should be minimized. This is zero or
+     *         negative if it is already due.
+     */
+    public long getMinimizeDelay() {
+        return mRefreshMinimizeDelay - (mClock.uptimeMillis() - mRefreshStartTime);
+    }
+
+    private void updatePullVelocity(float y, long eventTime) {
+        if (mLastSampleTime > 0 && eventTime > mLastSampleTime) {
+            mPullVelocity = (y - mLastSampleY) / (eventTime - mLastSampleTime);
+        }
+        mLastSampleY = y;
+        mLastSampleTime = eventTime;
+    }
+
+    private void onPullStarted(float y) {
+        mCallback.onPullStarted();
+        mPullBeginY = y;
+    }
+
+    private void onPull(float y, float scrollNeeded) {
+        final float scrollLength = y - mPullBeginY;
+
+        if (scrollLength < scrollNeeded) {
+            // A small scroll back up is allowed, which can take us back above where we started
+            mCallback.onPulled(Math.max(0f, scrollLength) / scrollNeeded);
+            checkSpeculativeRefresh(scrollLength, scrollNeeded);
+        } else {
+            if (mRefreshOnUp) {
+                mCallback.onReleaseToRefresh();
+            } else {
+                mCallback.onRefreshRequested();
+            }
+        }
+    }
+
+    private void onPullEnded() {
+        if (!mIsRefreshing) {
+            mCallback.onPullEnded();
+        }
+    }
+
+    /**
+     * Let the callback prepare a refresh if the pull has passed the speculative fraction and is
+     * moving fast enough that it will probably reach the threshold.
+     */
+    private void checkSpeculativeRefresh(float scrollLength, float scrollNeeded) {
+        if (mSpeculativeRefreshFraction > 0f
+                && scrollLength >= scrollNeeded * mSpeculativeRefreshFraction
+                && scrollLength + mPullVelocity * SPECULATIVE_LOOKAHEAD_MS >= scrollNeeded) {
+            mCallback.onPrepareRefresh();
+        }
+    }
+
+    private void checkScrollForRefresh(float scrollNeeded) {
+        if (mIsBeingDragged && mRefreshOnUp && scrollNeeded > 0f) {
+            if (mLastMotionY - mPullBeginY >= scrollNeeded) {
+                mCallback.onRefreshRequested();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * Steps through the events of a {@link TouchRecording}, describing each one as the samples a
+ * replayed touch event should be built from. This is how the library's TouchReplayer rebuilds
+ * MotionEvents, kept here so that it can be checked off the device.
+ * <p/>
+ * Each event is made of its historical samples followed by the event's own sample, all in raw
+ * (screen) coordinates. Once built, the event should be offset by
+ * {@code -getOffsetX(), -getOffsetY()}, which moves its local coordinates back to the recorded
+ * ones while leaving the raw coordinates alone.
+ */
+public final class RecordingCursor {
+
+    private final TouchRecording mRecording;
+    private final long mTimeOffset;
+
+    private int mIndex = -1;
+    private long mDownTime;
+
+    /**
+     * @param timeOffset Added to every recorded time, so that the recording can be replayed
+     *                   relative to the current time.
+     */
+    public RecordingCursor(TouchRecording recording, long timeOffset) {
+        mRecording = recording;
+        mTimeOffset = timeOffset;
+        mDownTime = timeOffset;
+    }
+
+    /**
+     * Move to the next event.
+     *
+     * @return false if there are no more events.
+     */
+    public boolean moveToNext() {
+        if (mIndex + 1 >= mRecording.getEventCount()) {
+            return false;
+        }
+        mIndex++;
+        // Mask off the pointer index, which is recorded in the action's second byte
+        if ((mRecording.getAction(mIndex) & 0xff) == PullGestureEngine.ACTION_DOWN) {
+            mDownTime = getEventTime();
+        }
+        return true;
+    }
+
+    public int getDispatch() {
+        return mRecording.getDispatch(mIndex);
+    }
+
+    public int getAction() {
+        return mRecording.getAction(mIndex);
+    }
+
+    /**
+     * @return The time of the ACTION_DOWN which started the current event's gesture.
+     */
+    public long getDownTime() {
+        return mDownTime;
+    }
+
+    public long getEventTime() {
+        return mRecording.getEventTime(mIndex) + mTimeOffset;
+    }
+
+    /**
+     * @return The number of samples in the current event: its historical samples plus its own.
+     */
+    public int getSampleCount() {
+        return mRecording.getHistorySize(mIndex) + 1;
+    }
+
+    public long getSampleTime(int sample) {
+        return isHistorical(sample)
+                ? mRecording.getHistoricalEventTime(mIndex, sample) + mTimeOffset
+                : getEventTime();
+    }
+
+    public float getSampleRawX(int sample) {
+        return isHistorical(sample)
+                ? mRecording.getHistoricalX(mIndex, sample) + getOffsetX()
+                : mRecording.getRawX(mIndex);
+    }
+
+    public float getSampleRawY(int sample) {
+        return isHistorical(sample)
+                ? mRecording.getHistoricalY(mIndex, sample) + getOffsetY()
+                : mRecording.getRawY(mIndex);
+    }
+
+    /**
+     * @return The offset from the current event's local coordinates to its raw coordinates.
+     */
+    public float getOffsetX() {
+        return mRecording.getRawX(mIndex) - mRecording.getX(mIndex);
+    }
+
+    public float getOffsetY() {
+        return mRecording.getRawY(mIndex) - mRecording.getY(mIndex);
+    }
+
+    private boolean isHistorical(int sample) {
+        return sample < mRecording.getHistorySize(mIndex);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * Replays a {@link TouchRecording} into a {@link PullGestureEngine}, in the same way that the
+ * library's PullToRefreshAttacher drives it, so that recorded gestures can be used in tests and
+ * benchmarks off the device.
+ * <p/>
+ * The recording does not capture the state of the refreshable views, so that is given here: a
+ * touch down is on a view which is ready for a pull if {@code readyForPull} is true, and every
+ * pull needs {@code scrollNeeded} pixels to reach the refresh threshold.
+ */
+public final class RecordingReplayer {
+
+    private RecordingReplayer() {}
+
+    /**
+     * Replay every event in {@code recording}, moving {@code clock} to each event's time before
+     * it is dispatched. {@code engine} should have been created with {@code clock}.
+     */
+    public static void replay(TouchRecording recording, PullGestureEngine engine,
+            VirtualClock clock, boolean readyForPull, float scrollNeeded) {
+        for (int i = 0, z = recording.getEventCount(); i < z; i++) {
+            // Actions are passed through unmasked, as the attacher does
+            final int action = recording.getAction(i);
+            final long eventTime = recording.getEventTime(i);
+            clock.setTime(eventTime);
+
+            final float x = recording.getX(i);
+            final float y = recording.getY(i);
+            if (recording.getDispatch(i) == TouchRecording.DISPATCH_INTERCEPT) {
+                engine.onInterceptTouchEvent(action, x, y, readyForPull);
+            } else {
+                engine.onTouchEvent(action, x, y, eventTime, readyForPull, scrollNeeded);
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded stream of touch events, as handled by a PullToRefreshLayout. Each event has the
+ * method it was dispatched to, its action, time, raw and local coordinates, and any historical
+ * samples which were batched into it.
+ * <p/>
+ * Recordings are stored in primitive arrays, and can be written to and read from a compact
+ * binary format with {@link #writeTo(OutputStream)} and {@link #readFrom(InputStream)}.
+ */
+public final class TouchRecording {
+
+    /* The method an event was dispatched to */
+    public static final int DISPATCH_INTERCEPT = 0;
+    public static final int DISPATCH_TOUCH = 1;
+
+    private static final int MAGIC = 0x50545252; // 'PTRR'
+    private static final int VERSION = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int mEventCount;
+    private byte[] mDispatch = new byte[INITIAL_CAPACITY];
+    private int[] mAction = new int[INITIAL_CAPACITY];
+    private long[] mTime = new long[INITIAL_CAPACITY];
+    private float[] mRawX = new float[INITIAL_CAPACITY];
+    private float[] mRawY = new float[INITIAL_CAPACITY];
+    private float[] mX = new float[INITIAL_CAPACITY];
+    private float[] mY = new float[INITIAL_CAPACITY];
+    private int[] mHistoryStart = new int[INITIAL_CAPACITY];
+    private int[] mHistorySize = new int[INITIAL_CAPACITY];
+
+    private int mHistoryCount;
+    private long[] mHistoryTime = new long[INITIAL_CAPACITY];
+    private float[] mHistoryX = new float[INITIAL_CAPACITY];
+    private float[] mHistoryY = new float[INITIAL_CAPACITY];
+
+    /**
+     * Add an event to the end of the recording. Its historical samples should then be added, in
+     * order, with {@link #addHistorical(long, float, float)}.
+     *
+     * @param dispatch One of {@link #DISPATCH_INTERCEPT} or {@link #DISPATCH_TOUCH}.
+     */
+    public void addEvent(int dispatch, int action, long eventTime, float rawX, float rawY,
+            float x, float y) {
+        if (mEventCount == mAction.length) {
+            final int capacity = mEventCount * 2;
+            mDispatch = Arrays.copyOf(mDispatch, capacity);
+            mAction = Arrays.copyOf(mAction, capacity);
+            mTime = Arrays.copyOf(mTime, capacity);
+            mRawX = Arrays.copyOf(mRawX, capacity);
+            mRawY = Arrays.copyOf(mRawY, capacity);
+            mX = Arrays.copyOf(mX, capacity);
+            mY = Arrays.copyOf(mY, capacity);
+            mHistoryStart = Arrays.copyOf(mHistoryStart, capacity);
+            mHistorySize = Arrays.copyOf(mHistorySize, capacity);
+        }
+
+        final int i = mEventCount++;
+        mDispatch[i] = (byte) dispatch;
+        mAction[i] = action;
+        mTime[i] = eventTime;
+        mRawX[i] = rawX;
+        mRawY[i] = rawY;
+        mX[i] = x;
+        mY[i] = y;
+        mHistoryStart[i] = mHistoryCount;
+        mHistorySize[i] = 0;
+    }
+
+    /**
+     * Add a historical sample, in local coordinates, to the last event added.
+     */
+    public void addHistorical(long eventTime, float x, float y) {
+        if (mEventCount == 0) {
+            throw new IllegalStateException("addEvent() must be called first");
+        }
+        if (mHistoryCount == mHistoryTime.length) {
+            final int capacity = mHistoryCount * 2;
+            mHistoryTime = Arrays.copyOf(mHistoryTime, capacity);
+            mHistoryX = Arrays.copyOf(mHistoryX, capacity);
+            mHistoryY = Arrays.copyOf(mHistoryY, capacity);
+        }
+
+        final int h = mHistoryCount++;
+        mHistoryTime[h] = eventTime;
+        mHistoryX[h] = x;
+        mHistoryY[h] = y;
+        mHistorySize[mEventCount - 1]++;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public int getDispatch(int event) {
+        return mDispatch[event];
+    }
+
+    public int getAction(int event) {
+        return mAction[event];
+    }
+
+    public long getEventTime(int event) {
+        return mTime[event];
+    }
+
+    public float getRawX(int event) {
+        return mRawX[event];
+    }
+
+    public float getRawY(int event) {
+        return mRawY[event];
+    }
+
+    public float getX(int event) {
+        return mX[event];
+    }
+
+    public float getY(int event) {
+        return mY[event];
+    }
+
+    public int getHistorySize(int event) {
+        return mHistorySize[event];
+    }
+
+    public long getHistoricalEventTime(int event, int pos) {
+        return mHistoryTime[mHistoryStart[event] + pos];
+    }
+
+    public float getHistoricalX(int event, int pos) {
+        return mHistoryX[mHistoryStart[event] + pos];
+    }
+
+    public float getHistoricalY(int event, int pos) {
+        return mHistoryY[mHistoryStart[event] + pos];
+    }
+
+    /**
+     * Write the recording. Times are written relative to the first event, so a recording takes
+     * 25 bytes per event plus 12 bytes per historical sample.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(mEventCount);
+
+        final long startTime = mEventCount > 0 ? mTime[0] : 0;
+        data.writeLong(startTime);
+
+        for (int i = 0; i < mEventCount; i++) {
+            data.writeByte(mDispatch[i]);
+            data.writeByte(mAction[i] & 0xff);
+            data.writeByte((mAction[i] >> 8) & 0xff);
+            data.writeInt((int) (mTime[i] - startTime));
+            // Raw coordinates are stored as the offset from local, which the historical
+            // samples share
+            data.writeFloat(mRawX[i] - mX[i]);
+            data.writeFloat(mRawY[i] - mY[i]);
+            data.writeFloat(mX[i]);
+            data.writeFloat(mY[i]);
+
+            data.writeShort(mHistorySize[i]);
+            for (int h = mHistoryStart[i], z = h + mHistorySize[i]; h < z; h++) {
+                data.writeInt((int) (mHistoryTime[h] - startTime));
+                data.writeFloat(mHistoryX[h]);
+                data.writeFloat(mHistoryY[h]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a recording which was written by {@link #writeTo(OutputStream)}.
+     */
+    public static TouchRecording readFrom(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a touch recording");
+        }
+        final int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported touch recording version: " + version);
+        }
+
+        final TouchRecording recording = new TouchRecording();
+        final int eventCount = data.readInt();
+        final long startTime = data.readLong();
+
+        for (int i = 0; i < eventCount; i++) {
+            final int dispatch = data.readUnsignedByte();
+            final int action = data.readUnsignedByte() | (data.readUnsignedByte() << 8);
+            final long time = startTime + data.readInt();
+            final float rawOffsetX = data.readFloat();
+            final float rawOffsetY = data.readFloat();
+            final float x = data.readFloat();
+            final float y = data.readFloat();
+            recording.addEvent(dispatch, action, time, x + rawOffsetX, y + rawOffsetY, x, y);
+
+            final int historySize = data.readUnsignedShort();
+            for (int h = 0; h < historySize; h++) {
+                recording.addHistorical(startTime + data.readInt(), data.readFloat(),
+                        data.readFloat());
+            }
+        }
+        return recording;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+/**
+ * A {@link Clock} which only moves when told to, for replaying recorded gestures
+ * deterministically.
+ */
+public final class VirtualClock implements Clock {
+
+    private long mTime;
+
+    public VirtualClock(long time) {
+        mTime = time;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return mTime;
+    }
+
+    public void setTime(long time) {
+        mTime = time;
+    }
+
+    public void advance(long millis) {
+        mTime += millis;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveTheirOwnBuckets() {
+        for (int value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.bucketFor(value));
+            assertEquals(value, LatencyHistogram.highestValueIn(value));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguous() {
+        final int last = LatencyHistogram.bucketFor(LatencyHistogram.MAX_VALUE);
+        for (int bucket = 0; bucket < last; bucket++) {
+            final long next = LatencyHistogram.highestValueIn(bucket) + 1;
+            assertEquals(bucket + 1, LatencyHistogram.bucketFor(next));
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueIn(last));
+    }
+
+    @Test
+    public void bucketsAreWithinRelativeError() {
+        for (long value = 1; value <= LatencyHistogram.MAX_VALUE; value = value * 3 / 2 + 1) {
+            final long highest = LatencyHistogram.highestValueIn(
+                    LatencyHistogram.bucketFor(value));
+            assertTrue(value + " reported as " + highest, highest >= value);
+            assertTrue(value + " reported as " + highest, highest - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void emptyHistogramReportsNothing() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(-1, histogram.getMin());
+        assertEquals(-1, histogram.getMax());
+        assertEquals(-1, histogram.getMean());
+        assertEquals(-1, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void percentilesOfExactValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 20; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(20, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(20, histogram.getMax());
+        assertEquals(10, histogram.getMean());
+        assertEquals(1, histogram.getPercentile(0));
+        assertEquals(10, histogram.getPercentile(50));
+        assertEquals(19, histogram.getPercentile(95));
+        assertEquals(20, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void percentileReportsTopOfBucketClampedToMax() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        // 1000 and 1001 share the bucket [992, 1023], whose top is more than was recorded
+        histogram.record(1000);
+        histogram.record(1001);
+
+        final long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 1000 && p50 <= 1001);
+        assertEquals(1001, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void percentileIsWithinRelativeError() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        final long p90 = histogram.getPercentile(90);
+        assertTrue("p90 was " + p90, p90 >= 900 && p90 <= 900 + 900 / 16);
+    }
+
+    @Test
+    public void negativeValuesAreIgnored() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    public void largeValuesAreClamped() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(LatencyHistogram.MAX_VALUE * 4);
+
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileOutOfRangeThrows() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1);
+        histogram.getPercentile(101);
+    }
+
+    @Test
+    public void addMergesHistograms() {
+        final LatencyHistogram a = new LatencyHistogram();
+        final LatencyHistogram b = new LatencyHistogram();
+        a.record(2);
+        a.record(4);
+        b.record(30);
+
+        a.add(b);
+        a.add(new LatencyHistogram());
+
+        assertEquals(3, a.getCount());
+        assertEquals(2, a.getMin());
+        assertEquals(30, a.getMax());
+        assertEquals(12, a.getMean());
+        assertEquals(30, a.getPercentile(100));
+    }
+
+    @Test
+    public void resetDiscardsValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.reset();
+        histogram.record(3);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(3, histogram.getMin());
+        assertEquals(3, histogram.getPercentile(100));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyTrackerTest {
+
+    private LatencyHistogram mTimeToPullStarted;
+    private LatencyHistogram mTimeToFeedback;
+    private LatencyHistogram mTimeToThreshold;
+    private LatencyHistogram mTimeToRefreshStarted;
+    private LatencyHistogram mTimeToRefreshFeedback;
+    private LatencyHistogram mRefreshDuration;
+    private LatencyTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mTimeToPullStarted = new LatencyHistogram();
+        mTimeToFeedback = new LatencyHistogram();
+        mTimeToThreshold = new LatencyHistogram();
+        mTimeToRefreshStarted = new LatencyHistogram();
+        mTimeToRefreshFeedback = new LatencyHistogram();
+        mRefreshDuration = new LatencyHistogram();
+        mTracker = new LatencyTracker(mTimeToPullStarted, mTimeToFeedback, mTimeToThreshold,
+                mTimeToRefreshStarted, mTimeToRefreshFeedback, mRefreshDuration);
+    }
+
+    @Test
+    public void pullToRefreshRecordsEveryInterval() {
+        mTracker.onDown(1000);
+        mTracker.onPullStarted(1020);
+        mTracker.onHeaderFirstDrawn(1030);
+        mTracker.onThresholdReached(1200);
+        mTracker.onRefreshStarted(1210, true);
+        mTracker.onPullEnded();
+        mTracker.onRefreshComplete(2210);
+
+        assertEquals(20, mTimeToPullStarted.getMax());
+        assertEquals(30, mTimeToFeedback.getMax());
+        assertEquals(180, mTimeToThreshold.getMax());
+        assertEquals(10, mTimeToRefreshStarted.getMax());
+        assertEquals(1000, mRefreshDuration.getMax());
+    }
+
+    @Test
+    public void onlyFirstHeaderFrameCounts() {
+        mTracker.onDown(0);
+        mTracker.onPullStarted(10);
+        mTracker.onHeaderFirstDrawn(16);
+        mTracker.onHeaderFirstDrawn(32);
+
+        assertEquals(1, mTimeToFeedback.getCount());
+        assertEquals(16, mTimeToFeedback.getMax());
+    }
+
+    @Test
+    public void thresholdIsRecordedOncePerGesture() {
+        mTracker.onDown(0);
+        mTracker.onPullStarted(10);
+        mTracker.onThresholdReached(100);
+        mTracker.onThresholdReached(116);
+
+        assertEquals(1, mTimeToThreshold.getCount());
+        assertEquals(90, mTimeToThreshold.getMax());
+
+        // The next gesture is timed afresh
+        mTracker.onPullEnded();
+        mTracker.onDown(1000);
+        mTracker.onPullStarted(1010);
+        mTracker.onThresholdReached(1060);
+        assertEquals(2, mTimeToThreshold.getCount());
+        assertEquals(50, mTimeToThreshold.getMin());
+    }
+
+    @Test
+    public void thresholdWithoutPullIsIgnored() {
+        mTracker.onThresholdReached(100);
+        mTracker.onRefreshStarted(120, true);
+
+        assertEquals(0, mTimeToThreshold.getCount());
+        assertEquals(0, mTimeToRefreshStarted.getCount());
+    }
+
+    @Test
+    public void tapDoesNotRecordFeedback() {
+        mTracker.onDown(0);
+        mTracker.onUp();
+        mTracker.onHeaderFirstDrawn(500);
+
+        assertEquals(0, mTimeToFeedback.getCount());
+        assertEquals(0, mTimeToPullStarted.getCount());
+    }
+
+    @Test
+    public void endedPullDoesNotRecordFeedback() {
+        mTracker.onDown(0);
+        mTracker.onPullStarted(10);
+        mTracker.onUp();
+        mTracker.onPullEnded();
+        mTracker.onHeaderFirstDrawn(500);
+
+        assertEquals(1, mTimeToPullStarted.getCount());
+        assertEquals(0, mTimeToFeedback.getCount());
+    }
+
+    @Test
+    public void programmaticRefreshIsOnlyTimedForDuration() {
+        mTracker.onRefreshStarted(100, false);
+        mTracker.onRefreshComplete(400);
+
+        assertEquals(0, mTimeToRefreshStarted.getCount());
+        assertEquals(1, mRefreshDuration.getCount());
+        assertEquals(300, mRefreshDuration.getMax());
+    }
+
+    @Test
+    public void listenerCallRestartsRefreshDuration() {
+        // A deferred listener call starts the refresh later than it was shown
+        mTracker.onRefreshStarted(100, false);
+        mTracker.onRefreshStarted(150, true);
+        mTracker.onRefreshComplete(400);
+
+        assertEquals(250, mRefreshDuration.getMax());
+    }
+
+    @Test
+    public void refreshFeedbackIsTimedFromTheRefreshStarting() {
+        // A synchronous listener call delays the refreshing header's first frame
+        mTracker.onRefreshStarted(100, false);
+        mTracker.onRefreshStarted(100, true);
+        mTracker.onRefreshFirstDrawn(180);
+        mTracker.onRefreshComplete(400);
+
+        // A deferred one is called after it
+        mTracker.onRefreshStarted(500, false);
+        mTracker.onRefreshFirstDrawn(516);
+        mTracker.onRefreshFirstDrawn(532);
+        mTracker.onRefreshStarted(534, true);
+
+        assertEquals(2, mTimeToRefreshFeedback.getCount());
+        assertEquals(16, mTimeToRefreshFeedback.getMin());
+        assertEquals(80, mTimeToRefreshFeedback.getMax());
+    }
+
+    @Test
+    public void refreshFeedbackAfterCompleteIsIgnored() {
+        mTracker.onRefreshStarted(100, false);
+        mTracker.onRefreshComplete(110);
+        mTracker.onRefreshFirstDrawn(116);
+
+        assertEquals(0, mTimeToRefreshFeedback.getCount());
+    }
+
+    @Test
+    public void completeWithoutRefreshIsIgnored() {
+        mTracker.onRefreshComplete(400);
+        mTracker.onRefreshStarted(500, false);
+        mTracker.onRefreshComplete(600);
+        mTracker.onRefreshComplete(700);
+
+        assertEquals(1, mRefreshDuration.getCount());
+        assertEquals(100, mRefreshDuration.getMax());
+    }
+}
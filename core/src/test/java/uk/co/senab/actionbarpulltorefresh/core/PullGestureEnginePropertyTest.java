@@ -0,0 +1,221 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_DOWN;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_MOVE;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_UP;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULLED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_ENDED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_STARTED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.REFRESH_REQUESTED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.RELEASE_TO_REFRESH;
+
+/**
+ * Properties of {@link PullGestureEngine} which must hold for any gesture. Each property is
+ * checked against a few hundred gestures from a seeded {@link Random}, so that failures are
+ * reproducible: the failing seed is included in the message.
+ */
+public class PullGestureEnginePropertyTest {
+
+    private static final int GESTURES = 500;
+    private static final long SEED = 0x5eedL;
+
+    /**
+     * A random gesture: a DOWN, a number of MOVEs and an UP, with the engine's parameters.
+     */
+    private static final class Gesture {
+        final int touchSlop;
+        final float scrollNeeded;
+        final boolean refreshOnUp;
+        final boolean readyForPull;
+        final float[] xs, ys;
+
+        Gesture(Random random, boolean downwardsOnly) {
+            touchSlop = 1 + random.nextInt(32);
+            scrollNeeded = 50f + random.nextInt(400);
+            refreshOnUp = random.nextBoolean();
+            readyForPull = random.nextInt(4) != 0;
+
+            final int moves = 1 + random.nextInt(30);
+            xs = new float[moves + 1];
+            ys = new float[moves + 1];
+            xs[0] = 1f + random.nextInt(500);
+            ys[0] = 1f + random.nextInt(500);
+            for (int i = 1; i <= moves; i++) {
+                xs[i] = xs[i - 1] + random.nextInt(11) - 5;
+                ys[i] = ys[i - 1] + (downwardsOnly
+                        ? random.nextInt(60)
+                        : random.nextInt(120) - 50);
+            }
+        }
+
+        RecordingCallback run() {
+            final RecordingCallback callback = new RecordingCallback();
+            final VirtualClock clock = new VirtualClock(1000);
+            final PullGestureEngine engine = new PullGestureEngine(touchSlop, refreshOnUp, 0,
+                    0f, clock, callback);
+
+            for (int i = 0; i < ys.length; i++) {
+                feed(engine, i == 0 ? ACTION_DOWN : ACTION_MOVE, xs[i], ys[i], clock);
+                clock.advance(16);
+            }
+            feed(engine, ACTION_UP, xs[xs.length - 1], ys[ys.length - 1], clock);
+            assertFalse("Engine still dragging after ACTION_UP", engine.isBeingDragged());
+            return callback;
+        }
+
+        private void feed(PullGestureEngine engine, int action, float x, float y,
+                VirtualClock clock) {
+            if (!engine.isBeingDragged()
+                    && engine.onInterceptTouchEvent(action, x, y, readyForPull)) {
+                return;
+            }
+            if (engine.isBeingDragged()) {
+                engine.onTouchEvent(action, x, y, clock.uptimeMillis(), readyForPull,
+                        scrollNeeded);
+            }
+        }
+
+        float maxDistanceFromDown() {
+            float max = 0f;
+            for (float y : ys) {
+                max = Math.max(max, y - ys[0]);
+            }
+            return max;
+        }
+    }
+
+    @Test
+    public void pullStartsAtMostOnceAndAlwaysEnds() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final Gesture gesture = new Gesture(random, false);
+            final RecordingCallback callback = gesture.run();
+
+            final int started = callback.count(PULL_STARTED);
+            assertTrue(message(i, callback.calls), started <= 1);
+            if (started == 1) {
+                // Every pull is finished, whether or not it requested a refresh
+                assertEquals(message(i, callback.calls), PULL_STARTED, callback.calls.get(0));
+                assertEquals(message(i, callback.calls), 1, callback.count(PULL_ENDED));
+                assertEquals(message(i, callback.calls), PULL_ENDED,
+                        callback.calls.get(callback.calls.size() - 1));
+            } else {
+                assertTrue(message(i, callback.calls), callback.calls.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void viewNotReadyNeverPulls() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final Gesture gesture = new Gesture(random, false);
+            if (!gesture.readyForPull) {
+                final RecordingCallback callback = gesture.run();
+                assertTrue(message(i, callback.calls), callback.calls.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void movesWithinSlopNeverPull() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final Gesture gesture = new Gesture(random, false);
+            if (gesture.maxDistanceFromDown() <= gesture.touchSlop) {
+                final RecordingCallback callback = gesture.run();
+                assertTrue(message(i, callback.calls), callback.calls.isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void pulledFractionsAreBelowThreshold() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final RecordingCallback callback = new Gesture(random, false).run();
+            for (float fraction : callback.fractions) {
+                if (fraction < 0f || fraction >= 1f) {
+                    fail(message(i, callback.calls) + " pulled " + fraction);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void downwardPullsAreMonotonic() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final RecordingCallback callback = new Gesture(random, true).run();
+            float last = 0f;
+            for (float fraction : callback.fractions) {
+                assertTrue(message(i, callback.calls), fraction >= last);
+                last = fraction;
+            }
+            // A pull which only moves down can't be abandoned before reaching the threshold
+            final List<String> transitions = callback.transitions();
+            assertFalse(message(i, callback.calls), transitions.contains(PULL_ENDED)
+                    && transitions.indexOf(PULL_ENDED) < transitions.size() - 1);
+        }
+    }
+
+    @Test
+    public void refreshOnUpOnlyRequestsRefreshOnRelease() {
+        final Random random = new Random(SEED);
+        for (int i = 0; i < GESTURES; i++) {
+            final Gesture gesture = new Gesture(random, true);
+            final RecordingCallback callback = gesture.run();
+            final List<String> calls = callback.calls;
+            final int requested = callback.count(REFRESH_REQUESTED);
+
+            if (gesture.refreshOnUp) {
+                assertTrue(message(i, calls), requested <= 1);
+                if (requested == 1) {
+                    // Requested by the UP, after being told to release, and before the end
+                    assertEquals(message(i, calls), REFRESH_REQUESTED, calls.get(calls.size() - 2));
+                    assertTrue(message(i, calls), calls.contains(RELEASE_TO_REFRESH));
+                } else {
+                    assertFalse(message(i, calls), calls.contains(RELEASE_TO_REFRESH));
+                }
+            } else {
+                assertFalse(message(i, calls), calls.contains(RELEASE_TO_REFRESH));
+                if (requested > 0) {
+                    // Nothing is reported as pulled once the threshold has been reached
+                    final int first = calls.indexOf(REFRESH_REQUESTED);
+                    assertFalse(message(i, calls),
+                            calls.subList(first, calls.size()).contains(PULLED));
+                }
+            }
+        }
+    }
+
+    private static String message(int gesture, List<String> calls) {
+        return "Gesture " + gesture + " from seed " + SEED + ": " + calls;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_CANCEL;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_DOWN;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_MOVE;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_UP;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PREPARE_REFRESH;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULLED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_ENDED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_STARTED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.REFRESH_REQUESTED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.RELEASE_TO_REFRESH;
+
+public class PullGestureEngineTest {
+
+    private static final int SLOP = 10;
+    private static final float SCROLL_NEEDED = 100f;
+    private static final long MINIMIZE_DELAY = 500;
+
+    private VirtualClock mClock;
+    private RecordingCallback mCallback;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(1000);
+        mCallback = new RecordingCallback();
+    }
+
+    private PullGestureEngine newEngine(boolean refreshOnUp, float speculativeFraction) {
+        return new PullGestureEngine(SLOP, refreshOnUp, MINIMIZE_DELAY, speculativeFraction,
+                mClock, mCallback);
+    }
+
+    /**
+     * Feed a sample the way the attacher does: intercepting until a pull starts, and then
+     * handling the rest of the gesture.
+     */
+    private void feed(PullGestureEngine engine, int action, float x, float y,
+            boolean readyForPull) {
+        if (!engine.isBeingDragged()
+                && engine.onInterceptTouchEvent(action, x, y, readyForPull)) {
+            return;
+        }
+        if (engine.isBeingDragged()) {
+            engine.onTouchEvent(action, x, y, mClock.uptimeMillis(), readyForPull,
+                    SCROLL_NEEDED);
+        }
+    }
+
+    private void drag(PullGestureEngine engine, float x, float... ys) {
+        feed(engine, ACTION_DOWN, x, ys[0], true);
+        for (int i = 1; i < ys.length; i++) {
+            mClock.advance(16);
+            feed(engine, ACTION_MOVE, x, ys[i], true);
+        }
+    }
+
+    @Test
+    public void movesWithinSlopDoNotStartPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 105f, 110f);
+
+        assertFalse(engine.isBeingDragged());
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void movesPastSlopStartPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 111f);
+
+        assertTrue(engine.isBeingDragged());
+        assertEquals(Arrays.asList(PULL_STARTED), mCallback.calls);
+    }
+
+    @Test
+    public void mostlyHorizontalMovesDoNotStartPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        feed(engine, ACTION_DOWN, 50f, 100f, true);
+        feed(engine, ACTION_MOVE, 90f, 130f, true);
+
+        assertFalse(engine.isBeingDragged());
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void scrollingUpPastSlopAbandonsGesture() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 80f, 150f);
+
+        assertFalse(engine.isBeingDragged());
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void viewNotReadyDoesNotStartPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        feed(engine, ACTION_DOWN, 50f, 100f, false);
+        feed(engine, ACTION_MOVE, 50f, 200f, false);
+
+        assertFalse(engine.isBeingDragged());
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void pulledFractionIsRelativeToPullStart() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 120f, 170f);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED), mCallback.calls);
+        assertEquals(0.5f, mCallback.fractions.get(0), 0.0001f);
+    }
+
+    @Test
+    public void reachingThresholdRequestsRefresh() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 120f, 170f, 220f);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, REFRESH_REQUESTED), mCallback.calls);
+    }
+
+    @Test
+    public void refreshOnUpWaitsForRelease() {
+        final PullGestureEngine engine = newEngine(true, 0f);
+        drag(engine, 50f, 100f, 120f, 220f);
+        assertEquals(Arrays.asList(PULL_STARTED, RELEASE_TO_REFRESH), mCallback.calls);
+
+        feed(engine, ACTION_UP, 50f, 220f, true);
+        assertEquals(Arrays.asList(PULL_STARTED, RELEASE_TO_REFRESH, REFRESH_REQUESTED,
+                PULL_ENDED), mCallback.calls);
+        assertFalse(engine.isBeingDragged());
+    }
+
+    @Test
+    public void refreshOnUpBelowThresholdOnlyEndsPull() {
+        final PullGestureEngine engine = newEngine(true, 0f);
+        drag(engine, 50f, 100f, 120f, 170f);
+        feed(engine, ACTION_UP, 50f, 170f, true);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, PULL_ENDED), mCallback.calls);
+    }
+
+    @Test
+    public void cancelEndsPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 120f, 170f);
+        feed(engine, ACTION_CANCEL, 50f, 170f, true);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, PULL_ENDED), mCallback.calls);
+        assertFalse(engine.isBeingDragged());
+    }
+
+    @Test
+    public void scrollingBackUpEndsPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        drag(engine, 50f, 100f, 120f, 170f, 140f);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, PULL_ENDED), mCallback.calls);
+        assertFalse(engine.isBeingDragged());
+    }
+
+    @Test
+    public void fastPullPreparesRefresh() {
+        final PullGestureEngine engine = newEngine(false, 0.25f);
+        // 40px per 16ms is far more than needed to reach the threshold within the lookahead
+        drag(engine, 50f, 100f, 120f, 160f, 200f);
+
+        assertTrue(mCallback.calls.contains(PREPARE_REFRESH));
+    }
+
+    @Test
+    public void slowPullDoesNotPrepareRefresh() {
+        final PullGestureEngine engine = newEngine(false, 0.25f);
+        drag(engine, 50f, 100f, 120f, 130f, 135f, 140f, 145f, 150f);
+
+        assertFalse(mCallback.calls.contains(PREPARE_REFRESH));
+    }
+
+    @Test
+    public void touchesAreIgnoredWhileRefreshing() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        engine.setRefreshing(true);
+        drag(engine, 50f, 100f, 120f, 220f);
+
+        assertFalse(engine.isBeingDragged());
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void nestedPullStartsOnlyWhenReady() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        engine.onNestedPull(20f, 1000, false, SCROLL_NEEDED);
+        engine.onNestedPull(-20f, 1016, true, SCROLL_NEEDED);
+        assertTrue(mCallback.calls.isEmpty());
+
+        engine.onNestedPull(20f, 1032, true, SCROLL_NEEDED);
+        engine.onNestedPull(30f, 1048, true, SCROLL_NEEDED);
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, PULLED), mCallback.calls);
+        assertEquals(0.2f, mCallback.fractions.get(0), 0.0001f);
+        assertEquals(0.5f, mCallback.fractions.get(1), 0.0001f);
+    }
+
+    @Test
+    public void nestedPullBackToStartEndsPull() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        engine.onNestedPull(20f, 1000, true, SCROLL_NEEDED);
+        engine.onNestedPull(-25f, 1016, true, SCROLL_NEEDED);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, PULL_ENDED), mCallback.calls);
+        assertFalse(engine.isBeingDragged());
+    }
+
+    @Test
+    public void nestedPullWithRefreshOnUpRequestsRefreshWhenStopped() {
+        final PullGestureEngine engine = newEngine(true, 0f);
+        engine.onNestedPull(60f, 1000, true, SCROLL_NEEDED);
+        engine.onNestedPull(60f, 1016, true, SCROLL_NEEDED);
+        engine.onNestedPullEnded(SCROLL_NEEDED);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, RELEASE_TO_REFRESH, REFRESH_REQUESTED,
+                PULL_ENDED), mCallback.calls);
+    }
+
+    @Test
+    public void minimizeDelayCountsFromRefreshStart() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        assertEquals(-1, engine.getRefreshElapsedTime());
+
+        engine.setRefreshing(true);
+        mClock.advance(200);
+        assertEquals(200, engine.getRefreshElapsedTime());
+        assertEquals(MINIMIZE_DELAY - 200, engine.getMinimizeDelay());
+
+        // Setting refreshing again does not restart the refresh
+        engine.setRefreshing(true);
+        mClock.advance(400);
+        assertEquals(-100, engine.getMinimizeDelay());
+
+        engine.setRefreshing(false);
+        assertEquals(-1, engine.getRefreshElapsedTime());
+    }
+
+    @Test
+    public void restoredRefreshStartTimeMovesMinimizeDelay() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        engine.setRefreshing(true);
+        engine.setRefreshStartTime(mClock.uptimeMillis() - 450);
+
+        assertEquals(450, engine.getRefreshElapsedTime());
+        assertEquals(50, engine.getMinimizeDelay());
+    }
+
+    @Test
+    public void restoredElapsedTimeIsIndependentOfTheClock() {
+        final PullGestureEngine engine = newEngine(false, 0f);
+        engine.setRefreshing(true);
+        mClock.advance(300);
+        final long saved = engine.getRefreshElapsedTime();
+
+        // The process may have been restarted, so the new clock can be behind the old one
+        final VirtualClock clock = new VirtualClock(50);
+        final PullGestureEngine restored = new PullGestureEngine(SLOP, false, MINIMIZE_DELAY, 0f,
+                clock, new RecordingCallback());
+        restored.setRefreshing(true);
+        restored.setRefreshElapsedTime(saved);
+
+        assertEquals(300, restored.getRefreshElapsedTime());
+        assertEquals(MINIMIZE_DELAY - 300, restored.getMinimizeDelay());
+
+        clock.advance(100);
+        assertEquals(400, restored.getRefreshElapsedTime());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullCallbackIsRejected() {
+        new PullGestureEngine(SLOP, false, MINIMIZE_DELAY, 0f, mClock, null);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PullGestureEngine.Callback} which records the calls made to it.
+ */
+class RecordingCallback implements PullGestureEngine.Callback {
+
+    static final String PULL_STARTED = "pullStarted";
+    static final String PULLED = "pulled";
+    static final String PREPARE_REFRESH = "prepareRefresh";
+    static final String RELEASE_TO_REFRESH = "releaseToRefresh";
+    static final String REFRESH_REQUESTED = "refreshRequested";
+    static final String PULL_ENDED = "pullEnded";
+
+    final List<String> calls = new ArrayList<String>();
+    final List<Float> fractions = new ArrayList<Float>();
+
+    @Override
+    public void onPullStarted() {
+        calls.add(PULL_STARTED);
+    }
+
+    @Override
+    public void onPulled(float fraction) {
+        calls.add(PULLED);
+        fractions.add(fraction);
+    }
+
+    @Override
+    public void onPrepareRefresh() {
+        calls.add(PREPARE_REFRESH);
+    }
+
+    @Override
+    public void onReleaseToRefresh() {
+        calls.add(RELEASE_TO_REFRESH);
+    }
+
+    @Override
+    public void onRefreshRequested() {
+        calls.add(REFRESH_REQUESTED);
+    }
+
+    @Override
+    public void onPullEnded() {
+        calls.add(PULL_ENDED);
+    }
+
+    int count(String call) {
+        int count = 0;
+        for (String c : calls) {
+            if (c.equals(call)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The calls made, with consecutive repeats collapsed.
+     */
+    List<String> transitions() {
+        final List<String> transitions = new ArrayList<String>();
+        for (String c : calls) {
+            if (transitions.isEmpty() || !transitions.get(transitions.size() - 1).equals(c)) {
+                transitions.add(c);
+            }
+        }
+        return transitions;
+    }
+}
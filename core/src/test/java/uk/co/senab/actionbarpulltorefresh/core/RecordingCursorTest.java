@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_DOWN;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_MOVE;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_UP;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULLED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_ENDED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.PULL_STARTED;
+import static uk.co.senab.actionbarpulltorefresh.core.RecordingCallback.REFRESH_REQUESTED;
+import static uk.co.senab.actionbarpulltorefresh.core.TouchRecording.DISPATCH_INTERCEPT;
+import static uk.co.senab.actionbarpulltorefresh.core.TouchRecording.DISPATCH_TOUCH;
+
+public class RecordingCursorTest {
+
+    private static final float DELTA = 0.001f;
+
+    // The content is offset by (10, 80) from the screen, as if below the Action Bar
+    private static final float OFFSET_X = 10f;
+    private static final float OFFSET_Y = 80f;
+
+    private static void addEvent(TouchRecording recording, int dispatch, int action, long time,
+            float x, float y) {
+        recording.addEvent(dispatch, action, time, x + OFFSET_X, y + OFFSET_Y, x, y);
+    }
+
+    private static TouchRecording newPull() {
+        final TouchRecording recording = new TouchRecording();
+        addEvent(recording, DISPATCH_INTERCEPT, ACTION_DOWN, 100, 50f, 100f);
+        addEvent(recording, DISPATCH_INTERCEPT, ACTION_MOVE, 116, 50f, 120f);
+        addEvent(recording, DISPATCH_TOUCH, ACTION_MOVE, 148, 51f, 190f);
+        recording.addHistorical(124, 50f, 140f);
+        recording.addHistorical(132, 50.5f, 160f);
+        recording.addHistorical(140, 51f, 175f);
+        addEvent(recording, DISPATCH_TOUCH, ACTION_MOVE, 164, 51f, 230f);
+        addEvent(recording, DISPATCH_TOUCH, ACTION_UP, 180, 51f, 230f);
+        return recording;
+    }
+
+    @Test
+    public void visitsEveryEventInOrder() {
+        final RecordingCursor cursor = new RecordingCursor(newPull(), 0);
+        final int[] dispatches = new int[5];
+        final int[] actions = new int[5];
+        int count = 0;
+        while (cursor.moveToNext()) {
+            dispatches[count] = cursor.getDispatch();
+            actions[count] = cursor.getAction();
+            count++;
+        }
+
+        assertEquals(5, count);
+        assertTrue(Arrays.equals(new int[] {DISPATCH_INTERCEPT, DISPATCH_INTERCEPT,
+                DISPATCH_TOUCH, DISPATCH_TOUCH, DISPATCH_TOUCH}, dispatches));
+        assertTrue(Arrays.equals(new int[] {ACTION_DOWN, ACTION_MOVE, ACTION_MOVE, ACTION_MOVE,
+                ACTION_UP}, actions));
+        assertFalse(cursor.moveToNext());
+    }
+
+    @Test
+    public void timesAreOffset() {
+        final RecordingCursor cursor = new RecordingCursor(newPull(), 1000);
+        cursor.moveToNext();
+        assertEquals(1100, cursor.getEventTime());
+        assertEquals(1100, cursor.getSampleTime(0));
+    }
+
+    @Test
+    public void downTimeIsTakenFromLatestDown() {
+        final TouchRecording recording = newPull();
+        addEvent(recording, DISPATCH_INTERCEPT, ACTION_DOWN, 500, 60f, 100f);
+        addEvent(recording, DISPATCH_INTERCEPT, ACTION_MOVE, 516, 60f, 104f);
+
+        final RecordingCursor cursor = new RecordingCursor(recording, 1000);
+        for (int i = 0; i < 5; i++) {
+            cursor.moveToNext();
+            assertEquals(1100, cursor.getDownTime());
+        }
+        cursor.moveToNext();
+        assertEquals(1500, cursor.getDownTime());
+        cursor.moveToNext();
+        assertEquals(1500, cursor.getDownTime());
+    }
+
+    @Test
+    public void downWithPointerIndexStartsGesture() {
+        final TouchRecording recording = new TouchRecording();
+        addEvent(recording, DISPATCH_INTERCEPT, ACTION_DOWN | (1 << 8), 200, 0f, 0f);
+
+        final RecordingCursor cursor = new RecordingCursor(recording, 0);
+        cursor.moveToNext();
+        assertEquals(200, cursor.getDownTime());
+    }
+
+    @Test
+    public void eventWithoutHistoryHasOneSample() {
+        final RecordingCursor cursor = new RecordingCursor(newPull(), 0);
+        cursor.moveToNext();
+        cursor.moveToNext();
+
+        assertEquals(1, cursor.getSampleCount());
+        assertEquals(116, cursor.getSampleTime(0));
+        assertEquals(50f + OFFSET_X, cursor.getSampleRawX(0), DELTA);
+        assertEquals(120f + OFFSET_Y, cursor.getSampleRawY(0), DELTA);
+    }
+
+    @Test
+    public void historyIsBatchedBeforeEventSample() {
+        final RecordingCursor cursor = moveToBatchedEvent(0);
+
+        assertEquals(4, cursor.getSampleCount());
+        final long[] times = new long[4];
+        final float[] localYs = new float[4];
+        for (int s = 0; s < 4; s++) {
+            times[s] = cursor.getSampleTime(s);
+            localYs[s] = cursor.getSampleRawY(s) - cursor.getOffsetY();
+        }
+
+        assertTrue(Arrays.equals(new long[] {124, 132, 140, 148}, times));
+        assertTrue(Arrays.equals(new float[] {140f, 160f, 175f, 190f}, localYs));
+    }
+
+    @Test
+    public void historicalSamplesShareEventRawOffset() {
+        final RecordingCursor cursor = moveToBatchedEvent(0);
+
+        assertEquals(OFFSET_X, cursor.getOffsetX(), DELTA);
+        assertEquals(OFFSET_Y, cursor.getOffsetY(), DELTA);
+        assertEquals(50.5f + OFFSET_X, cursor.getSampleRawX(1), DELTA);
+        assertEquals(160f + OFFSET_Y, cursor.getSampleRawY(1), DELTA);
+    }
+
+    @Test
+    public void offsetLocationRestoresRecordedCoordinates() {
+        final TouchRecording recording = newPull();
+        final RecordingCursor cursor = new RecordingCursor(recording, 0);
+        int i = 0;
+        while (cursor.moveToNext()) {
+            // The event's own sample is last, and offsetting it as the replayer does must give
+            // back the recorded local coordinates, with the raw ones untouched
+            final int last = cursor.getSampleCount() - 1;
+            assertEquals(recording.getX(i), cursor.getSampleRawX(last) - cursor.getOffsetX(),
+                    DELTA);
+            assertEquals(recording.getY(i), cursor.getSampleRawY(last) - cursor.getOffsetY(),
+                    DELTA);
+            assertEquals(recording.getRawX(i), cursor.getSampleRawX(last), 0f);
+            assertEquals(recording.getRawY(i), cursor.getSampleRawY(last), 0f);
+            i++;
+        }
+    }
+
+    @Test
+    public void replayingRecordingDrivesEngine() {
+        final VirtualClock clock = new VirtualClock(0);
+        final RecordingCallback callback = new RecordingCallback();
+        final PullGestureEngine engine = new PullGestureEngine(10, false, 500, 0f, clock,
+                callback);
+
+        RecordingReplayer.replay(newPull(), engine, clock, true, 100f);
+
+        assertEquals(Arrays.asList(PULL_STARTED, PULLED, REFRESH_REQUESTED, PULL_ENDED),
+                callback.calls);
+        assertEquals(180, clock.uptimeMillis());
+    }
+
+    private static RecordingCursor moveToBatchedEvent(long timeOffset) {
+        final RecordingCursor cursor = new RecordingCursor(newPull(), timeOffset);
+        for (int i = 0; i < 3; i++) {
+            cursor.moveToNext();
+        }
+        return cursor;
+    }
+}
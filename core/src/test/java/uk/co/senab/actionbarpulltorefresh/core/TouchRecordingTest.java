@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_DOWN;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_MOVE;
+import static uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine.ACTION_UP;
+import static uk.co.senab.actionbarpulltorefresh.core.TouchRecording.DISPATCH_INTERCEPT;
+import static uk.co.senab.actionbarpulltorefresh.core.TouchRecording.DISPATCH_TOUCH;
+
+public class TouchRecordingTest {
+
+    private static final float DELTA = 0.001f;
+
+    // ACTION_POINTER_UP for the second pointer, which needs the action's second byte
+    private static final int ACTION_POINTER_UP_1 = 6 | (1 << 8);
+
+    private static byte[] write(TouchRecording recording) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recording.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static TouchRecording roundTrip(TouchRecording recording) throws IOException {
+        return TouchRecording.readFrom(new ByteArrayInputStream(write(recording)));
+    }
+
+    private static TouchRecording newPull() {
+        final TouchRecording recording = new TouchRecording();
+        recording.addEvent(DISPATCH_INTERCEPT, ACTION_DOWN, 5000, 60.25f, 180.5f, 50.25f, 100.5f);
+        recording.addEvent(DISPATCH_INTERCEPT, ACTION_MOVE, 5016, 60.25f, 210.75f, 50.25f, 130.75f);
+        recording.addHistorical(5008, 50.25f, 115.125f);
+        recording.addHistorical(5012, 50.5f, 122.375f);
+        recording.addEvent(DISPATCH_TOUCH, ACTION_POINTER_UP_1, 5032, 61f, 260f, 51f, 180f);
+        recording.addEvent(DISPATCH_TOUCH, ACTION_UP, 5048, 61f, 280f, 51f, 200f);
+        recording.addHistorical(5040, 51f, 190f);
+        return recording;
+    }
+
+    private static void assertRecordingsEqual(TouchRecording expected, TouchRecording actual) {
+        assertEquals(expected.getEventCount(), actual.getEventCount());
+        for (int i = 0; i < expected.getEventCount(); i++) {
+            assertEquals(expected.getDispatch(i), actual.getDispatch(i));
+            assertEquals(expected.getAction(i), actual.getAction(i));
+            assertEquals(expected.getEventTime(i), actual.getEventTime(i));
+            assertEquals(expected.getRawX(i), actual.getRawX(i), DELTA);
+            assertEquals(expected.getRawY(i), actual.getRawY(i), DELTA);
+            assertEquals(expected.getX(i), actual.getX(i), 0f);
+            assertEquals(expected.getY(i), actual.getY(i), 0f);
+
+            assertEquals(expected.getHistorySize(i), actual.getHistorySize(i));
+            for (int h = 0; h < expected.getHistorySize(i); h++) {
+                assertEquals(expected.getHistoricalEventTime(i, h),
+                        actual.getHistoricalEventTime(i, h));
+                assertEquals(expected.getHistoricalX(i, h), actual.getHistoricalX(i, h), 0f);
+                assertEquals(expected.getHistoricalY(i, h), actual.getHistoricalY(i, h), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripKeepsEventsAndHistory() throws IOException {
+        final TouchRecording recording = newPull();
+        assertRecordingsEqual(recording, roundTrip(recording));
+    }
+
+    @Test
+    public void roundTripKeepsPointerIndexInAction() throws IOException {
+        final TouchRecording read = roundTrip(newPull());
+        assertEquals(ACTION_POINTER_UP_1, read.getAction(2));
+    }
+
+    @Test
+    public void roundTripOfEmptyRecording() throws IOException {
+        assertEquals(0, roundTrip(new TouchRecording()).getEventCount());
+    }
+
+    @Test
+    public void writtenSizeMatchesFormat() throws IOException {
+        // Header: magic, version, count and start time
+        final int header = 4 + 1 + 4 + 8;
+        assertEquals(header + 4 * 25 + 3 * 12, write(newPull()).length);
+    }
+
+    @Test
+    public void capacityGrowsPastInitialArrays() throws IOException {
+        final TouchRecording recording = new TouchRecording();
+        for (int i = 0; i < 500; i++) {
+            recording.addEvent(DISPATCH_TOUCH, ACTION_MOVE, i * 16, i, i * 2f, i, i);
+            for (int h = 0; h < 3; h++) {
+                recording.addHistorical(i * 16 + h, i, i + h);
+            }
+        }
+
+        assertEquals(500, recording.getEventCount());
+        assertEquals(499 * 16, recording.getEventTime(499));
+        assertEquals(3, recording.getHistorySize(499));
+        assertEquals(499f + 2, recording.getHistoricalY(499, 2), 0f);
+        assertRecordingsEqual(recording, roundTrip(recording));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void historicalBeforeEventThrows() {
+        new TouchRecording().addHistorical(0, 0f, 0f);
+    }
+
+    @Test
+    public void badMagicIsRejected() throws IOException {
+        final byte[] data = write(newPull());
+        data[0] = 'X';
+        assertReadFails(data);
+    }
+
+    @Test
+    public void unknownVersionIsRejected() throws IOException {
+        final byte[] data = write(newPull());
+        data[4] = 2;
+        assertReadFails(data);
+    }
+
+    @Test
+    public void truncatedRecordingIsRejected() throws IOException {
+        final byte[] data = write(newPull());
+        final byte[] truncated = new byte[data.length - 5];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertReadFails(truncated);
+    }
+
+    private static void assertReadFails(byte[] data) {
+        try {
+            TouchRecording.readFrom(new ByteArrayInputStream(data));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+}
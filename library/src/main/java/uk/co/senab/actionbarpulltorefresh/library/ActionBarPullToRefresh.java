@@ -26,6 +26,7 @@ import java.util.Map;
 import java.util.Set;
 
 import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
+import uk.co.senab.actionbarpulltorefresh.library.sdk.Compat;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate;
 
 public class ActionBarPullToRefresh {
@@ -34,6 +35,15 @@ public class ActionBarPullToRefresh {
         return new SetupWizard(activity);
     }
 
+    /**
+     * Set the registry used to create ViewDelegates and HeaderTransformers from class names,
+     * usually the {@code GeneratedComponentRegistry} created by the annotation processor. Any
+     * class which the registry does not know about is instantiated using reflection.
+     */
+    public static void setComponentRegistry(ComponentRegistry registry) {
+        InstanceCreationUtils.setComponentRegistry(registry);
+    }
+
     public static final class SetupWizard {
         private final Activity mActivity;
         private Options mOptions;
@@ -41,7 +51,11 @@ public class ActionBarPullToRefresh {
         private View[] refreshableViews;
         private OnRefreshListener mOnRefreshListener;
         private ViewGroup mViewGroupToInsertInto;
-        private HashMap<Class, ViewDelegate> mViewDelegates;
+        private ViewGroup mViewGroupToAttachTo;
+        private boolean mUseTouchRouter;
+        private HashMap<Class<?>, ViewDelegate> mViewDelegates;
+        private RefreshCoordinator mRefreshCoordinator;
+        private Object mRefreshKey;
 
         private SetupWizard(Activity activity) {
             mActivity = activity;
@@ -72,7 +86,7 @@ public class ActionBarPullToRefresh {
 
         public SetupWizard useViewDelegate(Class<?> viewClass, ViewDelegate delegate) {
             if (mViewDelegates == null) {
-                mViewDelegates = new HashMap<Class, ViewDelegate>();
+                mViewDelegates = new HashMap<Class<?>, ViewDelegate>();
             }
             mViewDelegates.put(viewClass, delegate);
             return this;
@@ -83,23 +97,90 @@ public class ActionBarPullToRefresh {
             return this;
         }
 
+        /**
+         * Share refreshes with other layouts which display the same data. Any layout registered
+         * with {@code coordinator} using an equal {@code key} will join an in-flight refresh
+         * rather than starting a new one.
+         */
+        public SetupWizard refreshCoordinator(RefreshCoordinator coordinator, Object key) {
+            mRefreshCoordinator = coordinator;
+            mRefreshKey = key;
+            return this;
+        }
+
         public SetupWizard insertLayoutInto(ViewGroup viewGroup) {
             mViewGroupToInsertInto = viewGroup;
+            mViewGroupToAttachTo = null;
+            return this;
+        }
+
+        /**
+         * Detect pulls on the children of an existing {@code viewGroup}, without adding a
+         * {@link PullToRefreshLayout} level to the view hierarchy. Touch events are intercepted
+         * from the Activity's {@link android.view.Window.Callback} instead.
+         * <p/>
+         * The {@link PullToRefreshLayout} given to {@link #setup(PullToRefreshLayout)} is then only
+         * used to control the refresh (i.e. {@code setRefreshComplete()}), and must not be added
+         * to the view hierarchy. As it is not in the hierarchy its state is not saved, so
+         * {@link Options.Builder#restoreRefreshingState(boolean)} can not be used with this; keep
+         * hold of a {@link RefreshHandle} instead.
+         *
+         * @throws IllegalArgumentException from {@link #setup(PullToRefreshLayout)} if the
+         *         Options enable restoreRefreshingState.
+         */
+        public SetupWizard attachTo(ViewGroup viewGroup) {
+            mViewGroupToAttachTo = viewGroup;
+            mViewGroupToInsertInto = null;
+            return this;
+        }
+
+        /**
+         * Route touch events to this layout from a single interceptor on the Activity's Window,
+         * which is shared by every layout in the Activity which uses it. The refreshable view
+         * under each touch is resolved once, and only its layout handles the gesture, so layouts
+         * which are not involved do no work. This is worthwhile when an Activity contains many
+         * layouts, for instance nested or side by side in fragments.
+         * <p/>
+         * Layouts set up with {@link #attachTo(ViewGroup)} always use the router.
+         */
+        public SetupWizard useTouchRouter() {
+            mUseTouchRouter = true;
             return this;
         }
 
         public void setup(PullToRefreshLayout pullToRefreshLayout) {
+            if (mViewGroupToAttachTo != null && mOptions != null
+                    && mOptions.restoreRefreshingState) {
+                throw new IllegalArgumentException("restoreRefreshingState can not be used with "
+                        + "attachTo(), as the layout is not in the view hierarchy to save its "
+                        + "state. Use a RefreshHandle instead.");
+            }
+
+            final boolean trace = mOptions != null && mOptions.traceSections;
+            if (trace) Compat.beginTraceSection("PTR:setup");
+
+            if (trace) Compat.beginTraceSection("PTR:setup.createAttacher");
             PullToRefreshAttacher attacher = pullToRefreshLayout.createPullToRefreshAttacher(
                     mActivity, mOptions);
             attacher.setOnRefreshListener(mOnRefreshListener);
+            if (trace) Compat.endTraceSection();
 
             if (mViewGroupToInsertInto != null) {
+                if (trace) Compat.beginTraceSection("PTR:setup.insertLayout");
                 insertLayoutIntoViewGroup(mViewGroupToInsertInto, pullToRefreshLayout);
+                if (trace) Compat.endTraceSection();
             }
 
             pullToRefreshLayout.setPullToRefreshAttacher(attacher);
 
+            if (mViewGroupToAttachTo != null) {
+                pullToRefreshLayout.attachToExternalContent(mActivity, mViewGroupToAttachTo);
+            } else if (mUseTouchRouter) {
+                pullToRefreshLayout.routeTouchesFromWindow(mActivity);
+            }
+
             // First add the pullable child views
+            if (trace) Compat.beginTraceSection("PTR:setup.addPullableViews");
             if (refreshableViewIds != null) {
                 pullToRefreshLayout.addChildrenAsPullable(refreshableViewIds);
             } else if (refreshableViews != null) {
@@ -107,26 +188,35 @@ public class ActionBarPullToRefresh {
             } else {
                 pullToRefreshLayout.addAllChildrenAsPullable();
             }
+            if (trace) Compat.endTraceSection();
 
             // Now set any custom view delegates
             if (mViewDelegates != null) {
-                final Set<Map.Entry<Class, ViewDelegate>> entries = mViewDelegates.entrySet();
-                for (final Map.Entry<Class, ViewDelegate> entry : entries) {
+                final Set<Map.Entry<Class<?>, ViewDelegate>> entries = mViewDelegates.entrySet();
+                for (final Map.Entry<Class<?>, ViewDelegate> entry : entries) {
                     attacher.useViewDelegate(entry.getKey(), entry.getValue());
                 }
             }
+
+            // Finally register with the coordinator, which may join an in-flight refresh
+            if (mRefreshCoordinator != null) {
+                attacher.setRefreshCoordinator(mRefreshCoordinator, mRefreshKey);
+            }
+
+            if (trace) Compat.endTraceSection();
         }
 
         private static void insertLayoutIntoViewGroup(ViewGroup viewGroup,
                 PullToRefreshLayout pullToRefreshLayout) {
-            // Move all children to PullToRefreshLayout. This code looks a bit silly but the child
-            // indices change every time we remove a View (so we can't just iterate through)
-            View child = viewGroup.getChildAt(0);
-            while (child != null) {
-                viewGroup.removeViewAt(0);
-                pullToRefreshLayout.addView(child);
-                child = viewGroup.getChildAt(0);
+            // Move all children to PullToRefreshLayout. We do this in one batch without requesting
+            // a layout for each View, as adding PullToRefreshLayout below requests one anyway
+            final int childCount = viewGroup.getChildCount();
+            final View[] children = new View[childCount];
+            for (int i = 0; i < childCount; i++) {
+                children[i] = viewGroup.getChildAt(i);
             }
+            viewGroup.removeAllViewsInLayout();
+            pullToRefreshLayout.addViewsInLayout(children);
 
             viewGroup.addView(pullToRefreshLayout, ViewGroup.LayoutParams.MATCH_PARENT,
                     ViewGroup.LayoutParams.MATCH_PARENT);
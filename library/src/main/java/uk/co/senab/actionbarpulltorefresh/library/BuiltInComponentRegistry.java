@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.AbsListViewDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.AbsListViewTrackingDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.CanScrollVerticallyDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ScrollYDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ScrollYTrackingDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.WebViewDelegate;
+
+/**
+ * Creates the library's own ViewDelegates and HeaderTransformers by name, so that naming one of
+ * them in a layout does not need reflection. This is consulted after any registry set with
+ * {@link ActionBarPullToRefresh#setComponentRegistry(ComponentRegistry)}.
+ */
+final class BuiltInComponentRegistry implements ComponentRegistry {
+
+    @Override
+    public ViewDelegate newViewDelegate(String className) {
+        if (AbsListViewDelegate.class.getName().equals(className)) {
+            return new AbsListViewDelegate();
+        } else if (AbsListViewTrackingDelegate.class.getName().equals(className)) {
+            return new AbsListViewTrackingDelegate();
+        } else if (CanScrollVerticallyDelegate.class.getName().equals(className)) {
+            return new CanScrollVerticallyDelegate();
+        } else if (ScrollYDelegate.class.getName().equals(className)) {
+            return new ScrollYDelegate();
+        } else if (ScrollYTrackingDelegate.class.getName().equals(className)) {
+            return new ScrollYTrackingDelegate();
+        } else if (WebViewDelegate.class.getName().equals(className)) {
+            return new WebViewDelegate();
+        }
+        return null;
+    }
+
+    @Override
+    public HeaderTransformer newHeaderTransformer(String className) {
+        if (DefaultHeaderTransformer.class.getName().equals(className)) {
+            return new DefaultHeaderTransformer();
+        } else if (ProgressHeaderTransformer.class.getName().equals(className)) {
+            return new ProgressHeaderTransformer();
+        }
+        return null;
+    }
+}
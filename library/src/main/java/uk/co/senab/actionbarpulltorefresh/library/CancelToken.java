@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+/**
+ * Token given to {@link uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshPrepareListener}
+ * for a speculative refresh. It is either committed, when the pull initiates a refresh, or
+ * cancelled, when the pull is abandoned.
+ */
+public final class CancelToken {
+
+    /**
+     * Listener which is called when a {@link CancelToken} is cancelled.
+     */
+    public interface OnCancelListener {
+        public void onCancel();
+    }
+
+    private boolean mIsCancelled, mIsCommitted;
+    private OnCancelListener mOnCancelListener;
+
+    CancelToken() {}
+
+    /**
+     * @return true if the pull was abandoned, and any speculative work should be discarded.
+     */
+    public boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    /**
+     * @return true if the pull initiated a refresh.
+     */
+    public boolean isCommitted() {
+        return mIsCommitted;
+    }
+
+    /**
+     * Set a listener to be called when this token is cancelled. If the token has already been
+     * cancelled, the listener is called immediately.
+     */
+    public void setOnCancelListener(OnCancelListener listener) {
+        mOnCancelListener = listener;
+        if (mIsCancelled && listener != null) {
+            listener.onCancel();
+        }
+    }
+
+    void commit() {
+        if (!mIsCancelled) {
+            mIsCommitted = true;
+        }
+        mOnCancelListener = null;
+    }
+
+    void cancel() {
+        if (mIsCancelled || mIsCommitted) return;
+
+        mIsCancelled = true;
+        if (mOnCancelListener != null) {
+            mOnCancelListener.onCancel();
+            mOnCancelListener = null;
+        }
+    }
+}
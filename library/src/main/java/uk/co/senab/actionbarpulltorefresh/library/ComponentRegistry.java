@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate;
+
+/**
+ * Creates {@link ViewDelegate} and {@link HeaderTransformer} instances from their class names,
+ * without using reflection. An implementation is generated by the {@code processor} artifact for
+ * every class annotated with
+ * {@link uk.co.senab.actionbarpulltorefresh.library.annotations.PullToRefreshComponent}, and
+ * should be set using {@link ActionBarPullToRefresh#setComponentRegistry(ComponentRegistry)}.
+ * <p/>
+ * Any class name which the registry does not know about is instantiated using reflection.
+ */
+public interface ComponentRegistry {
+
+    /**
+     * @param className The binary name of the class, as would be passed to
+     *                  {@link ClassLoader#loadClass(String)}.
+     * @return A new instance of the class, or null if it is not registered.
+     */
+    public ViewDelegate newViewDelegate(String className);
+
+    /**
+     * @param className The binary name of the class, as would be passed to
+     *                  {@link ClassLoader#loadClass(String)}.
+     * @return A new instance of the class, or null if it is not registered.
+     */
+    public HeaderTransformer newHeaderTransformer(String className);
+
+}
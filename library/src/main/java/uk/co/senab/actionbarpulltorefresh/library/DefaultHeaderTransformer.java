@@ -25,13 +25,9 @@ import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.graphics.PixelFormat;
-import android.graphics.drawable.ClipDrawable;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.RectShape;
 import android.os.Build;
 import android.util.TypedValue;
-import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.AccelerateInterpolator;
@@ -286,21 +282,17 @@ public class DefaultHeaderTransformer extends HeaderTransformer {
     }
 
     private void setupViewsFromStyles(Activity activity, View headerView) {
-        final TypedArray styleAttrs = obtainStyledAttrsFromThemeAttr(activity,
-                R.attr.ptrHeaderStyle, R.styleable.PullToRefreshHeader);
+        final Context abContext = headerView.getContext();
+        final HeaderStyle style = resolveStyles(activity, abContext);
 
-        // Retrieve the Action Bar size from the app theme or the Action Bar's style
+        // Set the content layout's height
         if (mContentLayout != null) {
-            final int height = styleAttrs.getDimensionPixelSize(
-                    R.styleable.PullToRefreshHeader_ptrHeaderHeight, getActionBarSize(activity));
-            mContentLayout.getLayoutParams().height = height;
+            mContentLayout.getLayoutParams().height = style.contentHeight;
             mContentLayout.requestLayout();
         }
 
-        // Retrieve the Action Bar background from the app theme or the Action Bar's style (see #93)
-        Drawable bg = styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrHeaderBackground)
-                ? styleAttrs.getDrawable(R.styleable.PullToRefreshHeader_ptrHeaderBackground)
-                : getActionBarBackground(activity);
+        // Set the background
+        final Drawable bg = style.newBackground(activity.getResources());
         if (bg != null) {
             mHeaderTextView.setBackgroundDrawable(bg);
 
@@ -310,50 +302,63 @@ public class DefaultHeaderTransformer extends HeaderTransformer {
             }
         }
 
-        // Retrieve the Action Bar Title Style from the app theme or the Action Bar's style
-        Context abContext = headerView.getContext();
-        final int titleTextStyle = styleAttrs
-                .getResourceId(R.styleable.PullToRefreshHeader_ptrHeaderTitleTextAppearance,
-                        getActionBarTitleStyle(abContext));
-        if (titleTextStyle != 0) {
-            mHeaderTextView.setTextAppearance(abContext, titleTextStyle);
+        // Set the title style
+        if (style.titleTextAppearance != 0) {
+            mHeaderTextView.setTextAppearance(abContext, style.titleTextAppearance);
         }
 
-        // Retrieve the Progress Bar Color the style
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrProgressBarColor)) {
-            mProgressDrawableColor = styleAttrs.getColor(
-                    R.styleable.PullToRefreshHeader_ptrProgressBarColor, mProgressDrawableColor);
+        // Set the progress bar values
+        if (style.progressBarColor != null) {
+            mProgressDrawableColor = style.progressBarColor;
         }
-
-        mProgressBarStyle = styleAttrs.getInt(
-                R.styleable.PullToRefreshHeader_ptrProgressBarStyle, PROGRESS_BAR_STYLE_OUTSIDE);
-
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrProgressBarHeight)) {
-            mProgressBarHeight = styleAttrs.getDimensionPixelSize(
-                    R.styleable.PullToRefreshHeader_ptrProgressBarHeight, mProgressBarHeight);
+        mProgressBarStyle = style.progressBarStyle;
+        if (style.progressBarHeight != null) {
+            mProgressBarHeight = style.progressBarHeight;
         }
 
-        // Retrieve the text strings from the style (if they're set)
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrPullText)) {
-            mPullRefreshLabel = styleAttrs.getString(R.styleable.PullToRefreshHeader_ptrPullText);
+        // Set the text strings (if they're set)
+        if (style.pullText != null) {
+            mPullRefreshLabel = style.pullText;
         }
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrRefreshingText)) {
-            mRefreshingLabel = styleAttrs
-                    .getString(R.styleable.PullToRefreshHeader_ptrRefreshingText);
+        if (style.refreshingText != null) {
+            mRefreshingLabel = style.refreshingText;
         }
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrReleaseText)) {
-            mReleaseLabel = styleAttrs.getString(R.styleable.PullToRefreshHeader_ptrReleaseText);
+        if (style.releaseText != null) {
+            mReleaseLabel = style.releaseText;
         }
 
         //SmoothProgressBar Style
-        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrSmoothProgressBarStyle)) {
-            int spbStyleRes = styleAttrs.getResourceId(R.styleable.PullToRefreshHeader_ptrSmoothProgressBarStyle, 0);
-            if (spbStyleRes != 0)
-                mHeaderProgressBar.applyStyle(spbStyleRes);
+        if (style.smoothProgressBarStyle != 0) {
+            mHeaderProgressBar.applyStyle(style.smoothProgressBarStyle);
+        }
+    }
 
+    private HeaderStyle resolveStyles(Activity activity, Context abContext) {
+        final HeaderStyleCache.Key key = HeaderStyleCache.isSupported()
+                ? HeaderStyleCache.createKey(this, activity, abContext) : null;
+        HeaderStyle style = key != null ? HeaderStyleCache.get(key) : null;
+        if (style != null) {
+            return style;
+        }
+
+        style = HeaderStyle.resolve(activity);
+
+        // Fall back to the Action Bar's size, title style and background (see #93) from the app
+        // theme, only looking them up if the header style does not set them
+        if (!style.hasContentHeight) {
+            style.contentHeight = getActionBarSize(activity);
+        }
+        if (!style.hasTitleTextAppearance) {
+            style.titleTextAppearance = getActionBarTitleStyle(abContext);
+        }
+        if (!style.hasBackground) {
+            style.setBackground(getActionBarBackground(activity));
         }
 
-        styleAttrs.recycle();
+        if (key != null && style.isCacheable()) {
+            HeaderStyleCache.put(key, style);
+        }
+        return style;
     }
 
     private void applyProgressBarStyle() {
@@ -373,14 +378,7 @@ public class DefaultHeaderTransformer extends HeaderTransformer {
     }
 
     private void applyProgressBarSettings() {
-        if (mHeaderProgressBar != null) {
-            ShapeDrawable shape = new ShapeDrawable();
-            shape.setShape(new RectShape());
-            shape.getPaint().setColor(mProgressDrawableColor);
-            ClipDrawable clipDrawable = new ClipDrawable(shape, Gravity.CENTER, ClipDrawable.HORIZONTAL);
-
-            mHeaderProgressBar.setProgressDrawable(clipDrawable);
-        }
+        HeaderStyle.applyProgressBarColor(mHeaderProgressBar, mProgressDrawableColor);
     }
 
     protected Drawable getActionBarBackground(Context context) {
@@ -398,13 +396,7 @@ public class DefaultHeaderTransformer extends HeaderTransformer {
     }
 
     protected int getActionBarSize(Context context) {
-        int[] attrs = {android.R.attr.actionBarSize};
-        TypedArray values = context.getTheme().obtainStyledAttributes(attrs);
-        try {
-            return values.getDimensionPixelSize(0, 0);
-        } finally {
-            values.recycle();
-        }
+        return HeaderStyle.getActionBarSize(context);
     }
 
     protected int getActionBarTitleStyle(Context context) {
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Build;
+import android.view.Choreographer;
+
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnFrameStatsListener;
+
+/**
+ * Counts the frames, dropped frames and worst frame time during each episode (a pull, or a header
+ * animation), and reports them to an {@link OnFrameStatsListener}. A frame callback is only
+ * registered while an episode is active.
+ * <p/>
+ * This uses {@link Choreographer}, so must only be created on API v16+.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class FrameJankTracker implements Choreographer.FrameCallback {
+
+    private static final int EPISODE_COUNT = 4;
+    private static final long NANOS_PER_MS = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final OnFrameStatsListener mListener;
+    private final Choreographer mChoreographer;
+    private final long mFrameIntervalNanos;
+    private final long mAnimationDurationNanos;
+
+    // Per-episode state, indexed by the EPISODE_ constants
+    private final boolean[] mActive = new boolean[EPISODE_COUNT];
+    private final long[] mStartTime = new long[EPISODE_COUNT];
+    private final int[] mFrameCount = new int[EPISODE_COUNT];
+    private final int[] mDroppedFrames = new int[EPISODE_COUNT];
+    private final long[] mWorstFrameTime = new long[EPISODE_COUNT];
+
+    private int mActiveCount;
+    private boolean mCallbackPosted;
+    private long mLastFrameTime = -1;
+
+    FrameJankTracker(Activity activity, OnFrameStatsListener listener) {
+        mListener = listener;
+        mChoreographer = Choreographer.getInstance();
+
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if (refreshRate < 1f) {
+            refreshRate = 60f;
+        }
+        mFrameIntervalNanos = (long) (NANOS_PER_SECOND / refreshRate);
+
+        // Use the same duration as the built-in HeaderTransformers' animations
+        mAnimationDurationNanos = activity.getResources()
+                .getInteger(android.R.integer.config_shortAnimTime) * NANOS_PER_MS;
+    }
+
+    /**
+     * Start tracking {@code episode}. If it is already being tracked, it is restarted.
+     */
+    void startEpisode(int episode) {
+        if (!mActive[episode]) {
+            mActive[episode] = true;
+            mActiveCount++;
+        }
+        mStartTime[episode] = System.nanoTime();
+        mFrameCount[episode] = 0;
+        mDroppedFrames[episode] = 0;
+        mWorstFrameTime[episode] = 0;
+
+        if (!mCallbackPosted) {
+            mCallbackPosted = true;
+            mLastFrameTime = -1;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Finish tracking {@code episode}, reporting its statistics if it was active.
+     */
+    void finishEpisode(int episode) {
+        if (!mActive[episode]) {
+            return;
+        }
+        mActive[episode] = false;
+        mActiveCount--;
+
+        mListener.onFrameStats(episode, mFrameCount[episode], mDroppedFrames[episode],
+                mWorstFrameTime[episode]);
+    }
+
+    /**
+     * Stop tracking every episode, without reporting them.
+     */
+    void stop() {
+        for (int i = 0; i < EPISODE_COUNT; i++) {
+            mActive[i] = false;
+        }
+        mActiveCount = 0;
+        if (mCallbackPosted) {
+            mChoreographer.removeFrameCallback(this);
+            mCallbackPosted = false;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTime >= 0) {
+            final long frameTime = frameTimeNanos - mLastFrameTime;
+            // Allow half an interval of jitter before counting a frame as dropped
+            final int dropped = (int) ((frameTime + mFrameIntervalNanos / 2)
+                    / mFrameIntervalNanos) - 1;
+
+            for (int i = 0; i < EPISODE_COUNT; i++) {
+                if (!mActive[i]) continue;
+
+                mFrameCount[i]++;
+                if (dropped > 0) {
+                    mDroppedFrames[i] += dropped;
+                }
+                if (frameTime > mWorstFrameTime[i]) {
+                    mWorstFrameTime[i] = frameTime;
+                }
+
+                // Pulls are finished by the attacher, animations once their duration has passed
+                if (i != OnFrameStatsListener.EPISODE_PULL
+                        && frameTimeNanos - mStartTime[i] >= mAnimationDurationNanos) {
+                    finishEpisode(i);
+                }
+            }
+        }
+        mLastFrameTime = frameTimeNanos;
+
+        if (mActiveCount > 0) {
+            mChoreographer.postFrameCallback(this);
+        } else {
+            mCallbackPosted = false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.drawable.ClipDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.ShapeDrawable;
+import android.graphics.drawable.shapes.RectShape;
+import android.view.Gravity;
+
+import fr.castorflex.android.smoothprogressbar.SmoothProgressBar;
+
+/**
+ * The values which the header transformers resolve from the theme's {@code ptrHeaderStyle}, so
+ * that resolving them is separate from applying them to the header's views, and they can be kept
+ * in the {@link HeaderStyleCache}. Fields which the style does not set are null, so that the
+ * transformer keeps its current value. The content height, background and title appearance
+ * have {@code has} flags instead, so that the transformer only looks up its Action Bar
+ * fallbacks when they are needed.
+ * <p/>
+ * Also holds the progress bar helpers which are shared by {@link DefaultHeaderTransformer} and
+ * {@link ProgressHeaderTransformer}.
+ */
+final class HeaderStyle {
+    boolean hasContentHeight;
+    int contentHeight;
+    boolean hasBackground;
+    // The background is held as its constant state when it has one, so that each header gets
+    // its own drawable
+    private Drawable.ConstantState mBackgroundState;
+    private Drawable mBackground;
+    boolean hasTitleTextAppearance;
+    int titleTextAppearance;
+    Integer progressBarColor;
+    int progressBarStyle;
+    Integer progressBarHeight;
+    CharSequence pullText, refreshingText, releaseText;
+    int smoothProgressBarStyle;
+
+    /**
+     * Resolve the {@code ptrHeaderStyle} of {@code context}'s theme.
+     */
+    static HeaderStyle resolve(Context context) {
+        final HeaderStyle style = new HeaderStyle();
+        final TypedArray styleAttrs = DefaultHeaderTransformer.obtainStyledAttrsFromThemeAttr(
+                context, R.attr.ptrHeaderStyle, R.styleable.PullToRefreshHeader);
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrHeaderHeight)) {
+            style.hasContentHeight = true;
+            style.contentHeight = styleAttrs.getDimensionPixelSize(
+                    R.styleable.PullToRefreshHeader_ptrHeaderHeight, 0);
+        }
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrHeaderBackground)) {
+            style.hasBackground = true;
+            style.setBackground(styleAttrs.getDrawable(
+                    R.styleable.PullToRefreshHeader_ptrHeaderBackground));
+        }
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrHeaderTitleTextAppearance)) {
+            style.hasTitleTextAppearance = true;
+            style.titleTextAppearance = styleAttrs.getResourceId(
+                    R.styleable.PullToRefreshHeader_ptrHeaderTitleTextAppearance, 0);
+        }
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrProgressBarColor)) {
+            style.progressBarColor = styleAttrs.getColor(
+                    R.styleable.PullToRefreshHeader_ptrProgressBarColor, 0);
+        }
+
+        style.progressBarStyle = styleAttrs.getInt(
+                R.styleable.PullToRefreshHeader_ptrProgressBarStyle,
+                DefaultHeaderTransformer.PROGRESS_BAR_STYLE_OUTSIDE);
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrProgressBarHeight)) {
+            style.progressBarHeight = styleAttrs.getDimensionPixelSize(
+                    R.styleable.PullToRefreshHeader_ptrProgressBarHeight, 0);
+        }
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrPullText)) {
+            style.pullText = styleAttrs.getString(R.styleable.PullToRefreshHeader_ptrPullText);
+        }
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrRefreshingText)) {
+            style.refreshingText = styleAttrs
+                    .getString(R.styleable.PullToRefreshHeader_ptrRefreshingText);
+        }
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrReleaseText)) {
+            style.releaseText = styleAttrs.getString(R.styleable.PullToRefreshHeader_ptrReleaseText);
+        }
+
+        if (styleAttrs.hasValue(R.styleable.PullToRefreshHeader_ptrSmoothProgressBarStyle)) {
+            style.smoothProgressBarStyle = styleAttrs.getResourceId(
+                    R.styleable.PullToRefreshHeader_ptrSmoothProgressBarStyle, 0);
+        }
+
+        styleAttrs.recycle();
+        return style;
+    }
+
+    void setBackground(Drawable background) {
+        mBackgroundState = background != null ? background.getConstantState() : null;
+        mBackground = mBackgroundState == null ? background : null;
+    }
+
+    /**
+     * @return A new background drawable for a header, or null if there is no background.
+     */
+    Drawable newBackground(Resources res) {
+        return mBackgroundState != null ? mBackgroundState.newDrawable(res) : mBackground;
+    }
+
+    /**
+     * @return false if the background has no constant state, so it can only be used once and
+     *         this style cannot be cached.
+     */
+    boolean isCacheable() {
+        return mBackground == null;
+    }
+
+    /**
+     * Set {@code progressBar}'s progress drawable to a plain bar of {@code color}.
+     */
+    static void applyProgressBarColor(SmoothProgressBar progressBar, int color) {
+        if (progressBar != null) {
+            ShapeDrawable shape = new ShapeDrawable();
+            shape.setShape(new RectShape());
+            shape.getPaint().setColor(color);
+            ClipDrawable clipDrawable = new ClipDrawable(shape, Gravity.CENTER, ClipDrawable.HORIZONTAL);
+
+            progressBar.setProgressDrawable(clipDrawable);
+        }
+    }
+
+    /**
+     * @return The theme's {@code android:actionBarSize}.
+     */
+    static int getActionBarSize(Context context) {
+        int[] attrs = {android.R.attr.actionBarSize};
+        TypedArray values = context.getTheme().obtainStyledAttributes(attrs);
+        try {
+            return values.getDimensionPixelSize(0, 0);
+        } finally {
+            values.recycle();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small cache of the {@link HeaderStyle}s which the header transformers resolve from the
+ * theme, so that creating more attachers, or a configuration change, does not repeat the theme
+ * lookups and drawable inflation.
+ * <p/>
+ * Entries are keyed on the transformer class, a fingerprint of the theme (the resolved values of
+ * the theme attributes which the header styles come from), the configuration and the display
+ * density. Only the {@link #MAX_ENTRIES} most recently used entries are kept. Only used on ICS+,
+ * where every lookup goes through the framework attributes which make up the fingerprint; before
+ * that the Action Bar compatibility libraries use their own attributes.
+ * <p/>
+ * This should only be used from the main thread.
+ */
+final class HeaderStyleCache {
+
+    /**
+     * Enough for a few themes in a couple of orientations.
+     */
+    static final int MAX_ENTRIES = 8;
+
+    private static final int[] THEME_ATTRS = {
+            R.attr.ptrHeaderStyle,
+            android.R.attr.actionBarStyle,
+            android.R.attr.actionBarSize,
+            android.R.attr.actionBarWidgetTheme,
+    };
+
+    // 3 ints for each resolved theme attribute, plus the header context's actionBarStyle
+    private static final int FINGERPRINT_LENGTH = (THEME_ATTRS.length + 1) * 3;
+
+    private static final LinkedHashMap<Key, HeaderStyle> sCache
+            = new LinkedHashMap<Key, HeaderStyle>(MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, HeaderStyle> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private HeaderStyleCache() {
+    }
+
+    static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH;
+    }
+
+    /**
+     * @return The key for the styles resolved by {@code transformer} from {@code context}, using
+     *         {@code headerContext} for the Action Bar title style.
+     */
+    static Key createKey(HeaderTransformer transformer, Context context, Context headerContext) {
+        final TypedValue outValue = new TypedValue();
+        final int[] fingerprint = new int[FINGERPRINT_LENGTH];
+
+        int i = 0;
+        for (int attr : THEME_ATTRS) {
+            i = resolve(context.getTheme(), attr, outValue, fingerprint, i);
+        }
+        resolve(headerContext.getTheme(), android.R.attr.actionBarStyle, outValue, fingerprint, i);
+
+        final Resources res = context.getResources();
+        return new Key(transformer.getClass(), fingerprint, res.getConfiguration(),
+                res.getDisplayMetrics().densityDpi);
+    }
+
+    private static int resolve(Resources.Theme theme, int attr, TypedValue outValue,
+            int[] fingerprint, int i) {
+        if (theme.resolveAttribute(attr, outValue, true)) {
+            fingerprint[i] = outValue.type;
+            fingerprint[i + 1] = outValue.data;
+            fingerprint[i + 2] = outValue.resourceId;
+        } else {
+            fingerprint[i] = TypedValue.TYPE_NULL;
+        }
+        return i + 3;
+    }
+
+    static HeaderStyle get(Key key) {
+        return sCache.get(key);
+    }
+
+    static void put(Key key, HeaderStyle style) {
+        sCache.put(key, style);
+    }
+
+    static final class Key {
+        private final Class<?> mTransformerClass;
+        private final int[] mThemeFingerprint;
+        private final Configuration mConfiguration;
+        private final int mDensityDpi;
+        private final int mHashCode;
+
+        Key(Class<?> transformerClass, int[] themeFingerprint, Configuration configuration,
+                int densityDpi) {
+            mTransformerClass = transformerClass;
+            mThemeFingerprint = themeFingerprint;
+            // Copied, as the Resources' configuration is updated in place
+            mConfiguration = new Configuration(configuration);
+            mDensityDpi = densityDpi;
+
+            int hash = transformerClass.hashCode();
+            hash = 31 * hash + Arrays.hashCode(themeFingerprint);
+            hash = 31 * hash + mConfiguration.hashCode();
+            hash = 31 * hash + densityDpi;
+            mHashCode = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            final Key other = (Key) o;
+            return mTransformerClass == other.mTransformerClass
+                    && mDensityDpi == other.mDensityDpi
+                    && Arrays.equals(mThemeFingerprint, other.mThemeFingerprint)
+                    && mConfiguration.equals(other.mConfiguration);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
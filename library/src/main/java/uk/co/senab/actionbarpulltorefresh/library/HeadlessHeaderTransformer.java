@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnPullProgressListener;
+
+/**
+ * The HeaderTransformer used when running headless. There is no header view, so it just passes
+ * the pull state on to an {@link OnPullProgressListener}.
+ */
+class HeadlessHeaderTransformer extends HeaderTransformer {
+
+    private final OnPullProgressListener mListener;
+    private boolean mIsShown;
+
+    HeadlessHeaderTransformer(OnPullProgressListener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void onReset() {
+        mListener.onReset();
+    }
+
+    @Override
+    public void onPulled(float percentagePulled) {
+        mListener.onPulled(percentagePulled);
+    }
+
+    @Override
+    public void onRefreshStarted() {
+        mListener.onRefreshStarted();
+    }
+
+    @Override
+    public void onReleaseToRefresh() {
+        mListener.onReleaseToRefresh();
+    }
+
+    @Override
+    public boolean showHeaderView() {
+        final boolean changeVis = !mIsShown;
+        mIsShown = true;
+        return changeVis;
+    }
+
+    @Override
+    public boolean hideHeaderView() {
+        final boolean changeVis = mIsShown;
+        if (changeVis) {
+            mIsShown = false;
+            onReset();
+        }
+        return changeVis;
+    }
+
+    boolean isShown() {
+        return mIsShown;
+    }
+}
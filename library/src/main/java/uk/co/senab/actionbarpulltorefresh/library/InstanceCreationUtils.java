@@ -23,10 +23,14 @@ import android.view.View;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
+import uk.co.senab.actionbarpulltorefresh.core.ClassResolver;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.AbsListViewDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.AbsListViewTrackingDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.CanScrollVerticallyDelegate;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ScrollYDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ScrollYTrackingDelegate;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.TrackingViewDelegate;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.WebViewDelegate;
 
@@ -37,32 +41,99 @@ class InstanceCreationUtils {
     private static final Class<?>[] VIEW_DELEGATE_CONSTRUCTOR_SIGNATURE = new Class[]{};
     private static final Class<?>[] TRANSFORMER_CONSTRUCTOR_SIGNATURE = new Class[]{};
 
-    private static final HashMap<Class, Class> BUILT_IN_DELEGATES;
+    private static ComponentRegistry sComponentRegistry;
+    private static final ComponentRegistry BUILT_IN_COMPONENTS = new BuiltInComponentRegistry();
+
+    /**
+     * Used for any View which does not have a more specific delegate.
+     */
+    private static final ViewDelegate FALLBACK_DELEGATE = new CanScrollVerticallyDelegate();
+
+    // The built-in delegates are stateless, so a single instance of each is shared
+    private static final HashMap<Class<?>, ViewDelegate> BUILT_IN_DELEGATES;
     static {
-        BUILT_IN_DELEGATES = new HashMap<Class, Class>();
-        addBuiltinDelegates(AbsListViewDelegate.SUPPORTED_VIEW_CLASSES, AbsListViewDelegate.class);
-        addBuiltinDelegates(ScrollYDelegate.SUPPORTED_VIEW_CLASSES, ScrollYDelegate.class);
-        addBuiltinDelegates(WebViewDelegate.SUPPORTED_VIEW_CLASSES, WebViewDelegate.class);
+        BUILT_IN_DELEGATES = new HashMap<Class<?>, ViewDelegate>();
+        addBuiltinDelegates(AbsListViewDelegate.SUPPORTED_VIEW_CLASSES, new AbsListViewDelegate());
+        addBuiltinDelegates(ScrollYDelegate.SUPPORTED_VIEW_CLASSES, new ScrollYDelegate());
+        addBuiltinDelegates(WebViewDelegate.SUPPORTED_VIEW_CLASSES, new WebViewDelegate());
     }
 
-    private static void addBuiltinDelegates(Class[] supportedViews, Class<?> delegateClass) {
+    // Concrete View class -> resolved built-in delegate
+    private static final HashMap<Class<?>, ViewDelegate> RESOLVED_BUILT_IN_DELEGATES
+            = new HashMap<Class<?>, ViewDelegate>();
+
+    private static void addBuiltinDelegates(Class<?>[] supportedViews, ViewDelegate delegate) {
         for (int i = 0, z = supportedViews.length; i< z ; i++) {
-            BUILT_IN_DELEGATES.put(supportedViews[i], delegateClass);
+            BUILT_IN_DELEGATES.put(supportedViews[i], delegate);
         }
     }
 
-    static ViewDelegate getBuiltInViewDelegate(final View view) {
-        final Set<Map.Entry<Class, Class>> entries = BUILT_IN_DELEGATES.entrySet();
-        for (final Map.Entry<Class, Class> entry : entries) {
-            if (entry.getKey().isInstance(view)) {
-                return InstanceCreationUtils.newInstance(view.getContext(),
-                        entry.getValue(), VIEW_DELEGATE_CONSTRUCTOR_SIGNATURE);
-            }
+    /**
+     * @return true if {@code delegate} is one of the shared built-in delegates.
+     */
+    static boolean isBuiltInViewDelegate(ViewDelegate delegate) {
+        return BUILT_IN_DELEGATES.containsValue(delegate);
+    }
+
+    /**
+     * @return A new built-in {@link TrackingViewDelegate} for {@code view}, or null if there is
+     *         no built-in tracking support for it.
+     */
+    static TrackingViewDelegate newTrackingViewDelegate(final View view) {
+        if (isInstance(AbsListViewTrackingDelegate.SUPPORTED_VIEW_CLASSES, view)) {
+            return new AbsListViewTrackingDelegate();
+        } else if (isInstance(ScrollYTrackingDelegate.SUPPORTED_VIEW_CLASSES, view)) {
+            return new ScrollYTrackingDelegate();
         }
         return null;
     }
 
-    static <T> T instantiateViewDelegate(Context context, String className) {
+    private static boolean isInstance(Class<?>[] classes, View view) {
+        for (int i = 0, z = classes.length; i < z; i++) {
+            if (classes[i].isInstance(view)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static ViewDelegate getBuiltInViewDelegate(final View view) {
+        return getViewDelegate(view.getClass(), null, RESOLVED_BUILT_IN_DELEGATES);
+    }
+
+    /**
+     * Resolve the delegate for {@code viewClass}, caching the result so that subsequent lookups
+     * for the same class are a single hash lookup with no reflection.
+     *
+     * @param viewClass The concrete class of the View.
+     * @param overrides Map of View class (or interface) to delegate, which take precedence over
+     *                  the built-in delegates. May be null.
+     * @param cache Map of concrete View class to resolved delegate.
+     * @return The resolved delegate. If none is registered, a {@link CanScrollVerticallyDelegate}
+     *         is returned.
+     */
+    static ViewDelegate getViewDelegate(Class<?> viewClass, Map<Class<?>, ViewDelegate> overrides,
+            Map<Class<?>, ViewDelegate> cache) {
+        return ClassResolver.resolve(viewClass, overrides, BUILT_IN_DELEGATES, FALLBACK_DELEGATE,
+                cache);
+    }
+
+    static void setComponentRegistry(ComponentRegistry registry) {
+        sComponentRegistry = registry;
+    }
+
+    static ViewDelegate instantiateViewDelegate(Context context, String className) {
+        if (sComponentRegistry != null) {
+            final ViewDelegate delegate = sComponentRegistry.newViewDelegate(className);
+            if (delegate != null) {
+                return delegate;
+            }
+        }
+        final ViewDelegate builtIn = BUILT_IN_COMPONENTS.newViewDelegate(className);
+        if (builtIn != null) {
+            return builtIn;
+        }
+
         try {
             Class<?> clazz = context.getClassLoader().loadClass(className);
             return newInstance(context, clazz, VIEW_DELEGATE_CONSTRUCTOR_SIGNATURE);
@@ -72,7 +143,18 @@ class InstanceCreationUtils {
         return null;
     }
 
-    static <T> T instantiateTransformer(Context context, String className) {
+    static HeaderTransformer instantiateTransformer(Context context, String className) {
+        if (sComponentRegistry != null) {
+            final HeaderTransformer transformer = sComponentRegistry.newHeaderTransformer(className);
+            if (transformer != null) {
+                return transformer;
+            }
+        }
+        final HeaderTransformer builtIn = BUILT_IN_COMPONENTS.newHeaderTransformer(className);
+        if (builtIn != null) {
+            return builtIn;
+        }
+
         try {
             Class<?> clazz = context.getClassLoader().loadClass(className);
             return newInstance(context, clazz, TRANSFORMER_CONSTRUCTOR_SIGNATURE);
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.util.Log;
+
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnSlowCallbackListener;
+
+/**
+ * Times listener callbacks, and reports those which take longer than the budget. Set via
+ * {@link Options.Builder#listenerWatchdog(long, OnSlowCallbackListener)}.
+ */
+final class ListenerWatchdog {
+
+    private static final String LOG_TAG = "PullToRefresh";
+
+    /* Callback names */
+    static final String ON_REFRESH_STARTED = "OnRefreshListener.onRefreshStarted";
+    static final String ON_REFRESH_PREPARE = "OnRefreshPrepareListener.onRefreshPrepare";
+    static final String ON_STATE_CHANGED = "HeaderViewListener.onStateChanged";
+
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private final long mBudgetNanos;
+    private final OnSlowCallbackListener mReporter;
+
+    ListenerWatchdog(long budgetMillis, OnSlowCallbackListener reporter) {
+        mBudgetNanos = budgetMillis * NANOS_PER_MS;
+        mReporter = reporter;
+    }
+
+    /**
+     * @return The start time to pass to {@link #check(long, Object, String)}.
+     */
+    long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Report the callback to {@code listener} if it has taken longer than the budget since
+     * {@code startTime}.
+     */
+    void check(long startTime, Object listener, String callback) {
+        final long duration = System.nanoTime() - startTime;
+        if (duration <= mBudgetNanos) {
+            return;
+        }
+
+        final long durationMillis = duration / NANOS_PER_MS;
+        if (mReporter != null) {
+            mReporter.onSlowCallback(listener.getClass(), callback, durationMillis);
+        } else {
+            Log.w(LOG_TAG, callback + " on " + listener.getClass().getName() + " took "
+                    + durationMillis + "ms, over the budget of "
+                    + (mBudgetNanos / NANOS_PER_MS) + "ms");
+        }
+    }
+}
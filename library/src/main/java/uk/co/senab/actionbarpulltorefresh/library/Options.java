@@ -16,6 +16,11 @@
 
 package uk.co.senab.actionbarpulltorefresh.library;
 
+import uk.co.senab.actionbarpulltorefresh.core.Clock;
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnFrameStatsListener;
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnPullProgressListener;
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnSlowCallbackListener;
+
 /**
  * Allows you to specify a number of configuration options when setting up a {@link PullToRefreshLayout}.
  */
@@ -27,6 +32,12 @@ public final class Options {
     private static final boolean DEFAULT_REFRESH_ON_UP = false;
     private static final int DEFAULT_REFRESH_MINIMIZED_DELAY = 1 * 1000;
     private static final boolean DEFAULT_REFRESH_MINIMIZE = true;
+    private static final float DEFAULT_SPECULATIVE_REFRESH_FRACTION = 0.6f;
+    private static final boolean DEFAULT_DEFER_REFRESH_STARTED = false;
+    private static final boolean DEFAULT_RESTORE_REFRESHING_STATE = false;
+    private static final boolean DEFAULT_TRACK_SCROLL_STATE = false;
+    private static final boolean DEFAULT_NESTED_SCROLL = false;
+    private static final boolean DEFAULT_TRACE_SECTIONS = false;
 
     public static Builder create() {
         return new Builder();
@@ -40,6 +51,29 @@ public final class Options {
     float refreshScrollDistance = DEFAULT_REFRESH_SCROLL_DISTANCE;
     boolean refreshOnUp = DEFAULT_REFRESH_ON_UP;
     int refreshMinimizeDelay = DEFAULT_REFRESH_MINIMIZED_DELAY;
+    RefreshScheduler refreshScheduler = null;
+    RefreshMetrics refreshMetrics = null;
+    OnFrameStatsListener frameStatsListener = null;
+    boolean traceSections = DEFAULT_TRACE_SECTIONS;
+
+    /**
+     * The time (in ms) after which a listener callback is reported as slow. A value of 0
+     * disables the listener watchdog.
+     */
+    long listenerBudget = 0;
+    OnSlowCallbackListener slowCallbackListener = null;
+
+    /**
+     * The fraction of {@link #refreshScrollDistance} after which a speculative refresh may be
+     * prepared. A value of 0 disables speculative refreshes.
+     */
+    float speculativeRefreshFraction = 0f;
+    boolean deferRefreshStarted = DEFAULT_DEFER_REFRESH_STARTED;
+    boolean restoreRefreshingState = DEFAULT_RESTORE_REFRESHING_STATE;
+    boolean trackScrollState = DEFAULT_TRACK_SCROLL_STATE;
+    boolean nestedScroll = DEFAULT_NESTED_SCROLL;
+    OnPullProgressListener pullProgressListener = null;
+    Clock clock = null;
 
     /**
      * Enable or disable the header 'minimization', which by default means that the majority of
@@ -81,6 +115,30 @@ public final class Options {
             return this;
         }
 
+        /**
+         * Run headless: no header view is inflated, no HeaderTransformer is used and no window is
+         * added. Instead the pull state is passed to {@code listener}, so that you can display
+         * your own indicator within the content. The header layout and transformer options are
+         * ignored, and {@link PullToRefreshLayout#getHeaderView()} returns null.
+         */
+        public Builder headless(OnPullProgressListener listener) {
+            mOptions.pullProgressListener = listener;
+            return this;
+        }
+
+        /**
+         * Use a minimal header which only displays the progress bar under the Action Bar, with no
+         * text or content layout. This sets the {@link #headerLayout(int)} and
+         * {@link #headerTransformer(HeaderTransformer)} to {@link ProgressHeaderTransformer}, and
+         * disables minimization as there is nothing to minimize.
+         */
+        public Builder progressOnlyHeader() {
+            mOptions.headerLayout = R.layout.progress_header;
+            mOptions.headerTransformer = new ProgressHeaderTransformer();
+            mOptions.refreshMinimize = false;
+            return this;
+        }
+
         /**
          * The percentage of the refreshable view that needs to be scrolled
          * before a refresh is initiated.
@@ -125,6 +183,154 @@ public final class Options {
             return this;
         }
 
+        /**
+         * The scheduler which is used to limit the number of concurrent refreshes. If null, the
+         * OnRefreshListener is called as soon as a refresh starts. You would usually pass
+         * {@link RefreshScheduler#getInstance()} here.
+         */
+        public Builder refreshScheduler(RefreshScheduler refreshScheduler) {
+            mOptions.refreshScheduler = refreshScheduler;
+            return this;
+        }
+
+        /**
+         * Collect latency metrics for pulls and refreshes into {@code metrics}. This is off by
+         * default. The same instance can be set on every layout in a screen.
+         */
+        public Builder refreshMetrics(RefreshMetrics metrics) {
+            mOptions.refreshMetrics = metrics;
+            return this;
+        }
+
+        /**
+         * Track the frames drawn during each pull and header animation, and report them to
+         * {@code listener}. A frame callback is registered while they are running, so this
+         * should only be used while instrumenting. It has no effect before API v16.
+         */
+        public Builder frameStatsListener(OnFrameStatsListener listener) {
+            mOptions.frameStatsListener = listener;
+            return this;
+        }
+
+        /**
+         * Whether to add systrace sections (prefixed with {@code PTR:}) around the touch
+         * handling, ViewDelegate and HeaderTransformer calls, header window updates and setup.
+         * This lets you see how much of a frame is spent in the library when profiling. Trace
+         * sections are only available on API v18+.
+         */
+        public Builder traceSections(boolean enabled) {
+            mOptions.traceSections = enabled;
+            return this;
+        }
+
+        /**
+         * Time each call to the OnRefreshListener, OnRefreshPrepareListener and
+         * HeaderViewListener, and report those which take longer than {@code budgetMillis} to
+         * {@code listener}. If {@code listener} is null, slow callbacks are logged instead.
+         * This is intended for debug builds. Pass a budget of 0 to disable it.
+         */
+        public Builder listenerWatchdog(long budgetMillis, OnSlowCallbackListener listener) {
+            mOptions.listenerBudget = budgetMillis;
+            mOptions.slowCallbackListener = listener;
+            return this;
+        }
+
+        /**
+         * Enable speculative refreshes, prepared once the user has pulled
+         * 60% of the way. The OnRefreshListener must
+         * implement {@link uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshPrepareListener}.
+         */
+        public Builder speculativeRefresh() {
+            return speculativeRefresh(DEFAULT_SPECULATIVE_REFRESH_FRACTION);
+        }
+
+        /**
+         * Enable speculative refreshes and set the fraction of the refresh scroll distance
+         * after which the refresh is prepared. The OnRefreshListener must
+         * implement {@link uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshPrepareListener}.
+         *
+         * @param fraction Greater than 0, and no more than 1.
+         * @throws IllegalArgumentException if {@code fraction} is out of range.
+         */
+        public Builder speculativeRefresh(float fraction) {
+            if (!(fraction > 0f && fraction <= 1f)) {
+                throw new IllegalArgumentException("fraction must be in the range (0, 1]");
+            }
+            mOptions.speculativeRefreshFraction = fraction;
+            return this;
+        }
+
+        /**
+         * Whether the OnRefreshListener should be called after the refreshing header has been
+         * drawn, rather than synchronously from the touch event. Enable this if your listener
+         * does any work on the main thread, so that it does not delay the header's feedback. For
+         * example, a ListFragment whose listener calls {@code setListShown(false)} would
+         * otherwise lay out its progress view before the refreshing header is drawn.
+         * {@link RefreshMetrics#getTimeToRefreshFeedback()} shows the difference it makes.
+         */
+        public Builder deferRefreshStarted(boolean enabled) {
+            mOptions.deferRefreshStarted = enabled;
+            return this;
+        }
+
+        /**
+         * Whether {@link PullToRefreshLayout} should restore its refreshing state after it has
+         * been recreated, for instance after a configuration change. Only enable this if your
+         * refresh continues while the Activity is recreated, and will call
+         * setRefreshComplete() on the new layout when it finishes. Otherwise use a
+         * {@link RefreshHandle}.
+         * <p/>
+         * This has two limitations:
+         * <ul>
+         * <li>As with any View state, the layout must have an ID for its state to be saved, and
+         * nothing is restored without one. Layouts created for
+         * {@link ActionBarPullToRefresh.SetupWizard#insertLayoutInto(android.view.ViewGroup)}
+         * have no ID, so call {@code setId()} on them before {@code setup()}.</li>
+         * <li>The layout restores itself to refreshing whether or not anything is still running.
+         * If the refresh does not survive the recreation (for instance if the process was
+         * killed), nothing will call setRefreshComplete() and the header stays refreshing.</li>
+         * </ul>
+         */
+        public Builder restoreRefreshingState(boolean enabled) {
+            mOptions.restoreRefreshingState = enabled;
+            return this;
+        }
+
+        /**
+         * Whether the built-in ViewDelegates should track the refreshable views' scroll state
+         * from their scroll callbacks, rather than querying the views on every touch. See
+         * {@link uk.co.senab.actionbarpulltorefresh.library.viewdelegates.TrackingViewDelegate}.
+         */
+        public Builder trackScrollState(boolean enabled) {
+            mOptions.trackScrollState = enabled;
+            return this;
+        }
+
+        /**
+         * Whether pulls should be detected from the refreshable views' nested scrolling, rather
+         * than by intercepting touch events. The layout then only takes over the scroll which
+         * the child could not consume at the top.
+         * <p/>
+         * Nested scrolling is only available on API v21+, and must be enabled on the refreshable
+         * views (i.e. {@code android:nestedScrollingEnabled="true"}). On older devices touch
+         * interception is used instead.
+         */
+        public Builder nestedScroll(boolean enabled) {
+            mOptions.nestedScroll = enabled;
+            return this;
+        }
+
+        /**
+         * The clock used to time refreshes and nested pulls. By default this is
+         * {@link android.os.SystemClock#uptimeMillis()}. This is only useful for replaying
+         * recorded gestures under a {@link uk.co.senab.actionbarpulltorefresh.core.VirtualClock},
+         * see {@link TouchReplayer}.
+         */
+        public Builder clock(Clock clock) {
+            mOptions.clock = clock;
+            return this;
+        }
+
         /**
          * @return the built {@link Options} instance.
          */
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.view.View;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import fr.castorflex.android.smoothprogressbar.SmoothProgressBar;
+
+/**
+ * A minimal Header Transformer which only displays the progress bar under the Action Bar, with
+ * no text or content layout. It should be used with the {@code progress_header} layout, which
+ * {@link Options.Builder#progressOnlyHeader()} sets up for you.
+ * <p/>
+ * The header is shown and hidden without animation. The progress bar is styled from the same
+ * {@code ptrHeaderStyle} attributes as {@link DefaultHeaderTransformer}: {@code ptrHeaderHeight}
+ * (the Action Bar size by default), {@code ptrProgressBarColor} and
+ * {@code ptrSmoothProgressBarStyle}. The height of the progress bar is the {@code minHeight} of
+ * the layout's progress bar.
+ */
+public class ProgressHeaderTransformer extends HeaderTransformer {
+
+    private View mHeaderView;
+    private SmoothProgressBar mHeaderProgressBar;
+
+    private int mProgressDrawableColor;
+
+    private final Interpolator mInterpolator = new AccelerateInterpolator();
+
+    @Override
+    public void onViewCreated(Activity activity, View headerView) {
+        mHeaderView = headerView;
+        mHeaderProgressBar = (SmoothProgressBar) headerView.findViewById(R.id.ptr_progress);
+        mProgressDrawableColor = activity.getResources()
+                .getColor(R.color.default_progress_bar_color);
+
+        setupViewsFromStyles(activity);
+        applyProgressBarSettings();
+
+        onReset();
+    }
+
+    @Override
+    public void onConfigurationChanged(Activity activity, Configuration newConfig) {
+        // The Action Bar size may have changed
+        setupViewsFromStyles(activity);
+    }
+
+    @Override
+    public void onReset() {
+        if (mHeaderProgressBar != null) {
+            mHeaderProgressBar.setProgress(0);
+            mHeaderProgressBar.setIndeterminate(false);
+        }
+    }
+
+    @Override
+    public void onPulled(float percentagePulled) {
+        if (mHeaderProgressBar != null) {
+            final float progress = mInterpolator.getInterpolation(percentagePulled);
+            mHeaderProgressBar.setProgress(Math.round(mHeaderProgressBar.getMax() * progress));
+        }
+    }
+
+    @Override
+    public void onRefreshStarted() {
+        if (mHeaderProgressBar != null) {
+            mHeaderProgressBar.setIndeterminate(true);
+        }
+    }
+
+    @Override
+    public void onReleaseToRefresh() {
+        if (mHeaderProgressBar != null) {
+            mHeaderProgressBar.setProgress(mHeaderProgressBar.getMax());
+        }
+    }
+
+    public View getHeaderView() {
+        return mHeaderView;
+    }
+
+    @Override
+    public boolean showHeaderView() {
+        final boolean changeVis = mHeaderView.getVisibility() != View.VISIBLE;
+        if (changeVis) {
+            mHeaderView.setVisibility(View.VISIBLE);
+        }
+        return changeVis;
+    }
+
+    @Override
+    public boolean hideHeaderView() {
+        final boolean changeVis = mHeaderView.getVisibility() != View.GONE;
+        if (changeVis) {
+            mHeaderView.setVisibility(View.GONE);
+            onReset();
+        }
+        return changeVis;
+    }
+
+    /**
+     * Set color to apply to the progress bar.
+     *
+     * @param color The color to use.
+     */
+    public void setProgressBarColor(int color) {
+        if (color != mProgressDrawableColor) {
+            mProgressDrawableColor = color;
+            mHeaderProgressBar.setSmoothProgressDrawableColor(color);
+            applyProgressBarSettings();
+        }
+    }
+
+    private void setupViewsFromStyles(Context context) {
+        final HeaderStyle style = resolveStyles(context);
+
+        // Pad the progress bar so that it is displayed under the Action Bar
+        mHeaderProgressBar.setPadding(0, style.contentHeight, 0, 0);
+
+        if (style.progressBarColor != null) {
+            mProgressDrawableColor = style.progressBarColor;
+        }
+
+        if (style.smoothProgressBarStyle != 0) {
+            mHeaderProgressBar.applyStyle(style.smoothProgressBarStyle);
+        }
+    }
+
+    private HeaderStyle resolveStyles(Context context) {
+        final HeaderStyleCache.Key key = HeaderStyleCache.isSupported()
+                ? HeaderStyleCache.createKey(this, context, context) : null;
+        HeaderStyle style = key != null ? HeaderStyleCache.get(key) : null;
+        if (style == null) {
+            style = HeaderStyle.resolve(context);
+            if (!style.hasContentHeight) {
+                style.contentHeight = getActionBarSize(context);
+            }
+            if (key != null && style.isCacheable()) {
+                HeaderStyleCache.put(key, style);
+            }
+        }
+        return style;
+    }
+
+    private void applyProgressBarSettings() {
+        HeaderStyle.applyProgressBarColor(mHeaderProgressBar, mProgressDrawableColor);
+    }
+
+    /**
+     * @return The height of the Action Bar, which the progress bar is displayed below. The
+     *         Action Bar compatibility libraries should set {@code ptrHeaderHeight} instead on
+     *         devices before Honeycomb.
+     */
+    protected int getActionBarSize(Context context) {
+        return HeaderStyle.getActionBarSize(context);
+    }
+}
@@ -24,6 +24,7 @@ import android.content.res.Configuration;
 import android.graphics.PixelFormat;
 import android.graphics.Rect;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.LayoutInflater;
@@ -33,10 +34,21 @@ import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 
+import java.io.PrintWriter;
+import java.util.HashMap;
 import java.util.WeakHashMap;
 
+import uk.co.senab.actionbarpulltorefresh.core.Clock;
+import uk.co.senab.actionbarpulltorefresh.core.EventJournal;
+import uk.co.senab.actionbarpulltorefresh.core.LatencyTracker;
+import uk.co.senab.actionbarpulltorefresh.core.PullGestureEngine;
+import uk.co.senab.actionbarpulltorefresh.core.TouchRecording;
 import uk.co.senab.actionbarpulltorefresh.library.listeners.HeaderViewListener;
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnFrameStatsListener;
 import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshPrepareListener;
+import uk.co.senab.actionbarpulltorefresh.library.sdk.Compat;
+import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.TrackingViewDelegate;
 import uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate;
 
 @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
@@ -45,6 +57,32 @@ public class PullToRefreshAttacher {
     private static final boolean DEBUG = false;
     private static final String LOG_TAG = "PullToRefreshAttacher";
 
+    /* Priorities used by RefreshScheduler */
+    static final int REFRESH_PRIORITY_FOREGROUND = 0;
+    static final int REFRESH_PRIORITY_BACKGROUND = 1;
+    static final int REFRESH_PRIORITY_OFFSCREEN = 2;
+
+    // Nested scrolling was added to the framework in API v21
+    private static final int NESTED_SCROLLING_MIN_SDK = 21;
+
+    private static final int EVENT_JOURNAL_CAPACITY = 64;
+
+    /* Trace section names */
+    private static final String TRACE_INTERCEPT_TOUCH = "PTR:onInterceptTouchEvent";
+    private static final String TRACE_TOUCH = "PTR:onTouchEvent";
+    private static final String TRACE_VIEW_BEING_DRAGGED = "PTR:isViewBeingDragged";
+    private static final String TRACE_READY_FOR_PULL = "PTR:ViewDelegate.isReadyForPull";
+    private static final String TRACE_PULLED = "PTR:HeaderTransformer.onPulled";
+    private static final String TRACE_RELEASE_TO_REFRESH
+            = "PTR:HeaderTransformer.onReleaseToRefresh";
+    private static final String TRACE_REFRESH_STARTED = "PTR:HeaderTransformer.onRefreshStarted";
+    private static final String TRACE_REFRESH_MINIMIZED
+            = "PTR:HeaderTransformer.onRefreshMinimized";
+    private static final String TRACE_SHOW_HEADER = "PTR:HeaderTransformer.showHeaderView";
+    private static final String TRACE_HIDE_HEADER = "PTR:HeaderTransformer.hideHeaderView";
+    private static final String TRACE_ADD_HEADER = "PTR:addHeaderViewToActivity";
+    private static final String TRACE_UPDATE_HEADER = "PTR:updateHeaderViewPosition";
+
     /* Member Variables */
 
     private EnvironmentDelegate mEnvironmentDelegate;
@@ -52,30 +90,59 @@ public class PullToRefreshAttacher {
 
     private OnRefreshListener mOnRefreshListener;
 
+    private RefreshCoordinator mRefreshCoordinator;
+    private Object mRefreshKey;
+    private RefreshScheduler mRefreshScheduler;
+    private final LatencyTracker mMetricsTracker;
+    // Non-null if the touch events we handle are being recorded
+    private TouchRecorder mTouchRecorder;
+    private FrameJankTracker mFrameJankTracker;
+    private final ListenerWatchdog mListenerWatchdog;
+
     private Activity mActivity;
     private View mHeaderView;
+    // The view which callbacks are posted to: the header view, or the Decor View when headless
+    private View mCallbackView;
     private HeaderViewListener mHeaderViewListener;
 
-    private final int mTouchSlop;
     private final float mRefreshScrollDistance;
 
-    private float mInitialMotionY, mLastMotionY, mPullBeginY;
-    private float mInitialMotionX;
-    private boolean mIsBeingDragged, mIsRefreshing, mHandlingTouchEventFromDown;
+    // Owns the gesture and refreshing state, we just map Views and MotionEvents onto it
+    private final PullGestureEngine mEngine;
     private View mViewBeingDragged;
 
     private final WeakHashMap<View, ViewDelegate> mRefreshableViews;
 
-    private final boolean mRefreshOnUp;
-    private final int mRefreshMinimizeDelay;
+    // Delegates set via useViewDelegate(), and the resulting View class -> delegate resolutions
+    private final HashMap<Class<?>, ViewDelegate> mViewDelegateOverrides;
+    private final HashMap<Class<?>, ViewDelegate> mResolvedViewDelegates;
+
     private final boolean mRefreshMinimize;
+    private final boolean mDeferRefreshStarted;
+    private final boolean mRestoreRefreshingState;
+    private final boolean mTrackScrollState;
+    private final boolean mNestedScrollEnabled;
+    private final boolean mTraceSections;
     private boolean mIsDestroyed = false;
 
+    private CancelToken mPrepareToken;
+
+    private View mDeferredRefreshView;
+    private boolean mDeferredRefreshFromTouch;
+
+    private RefreshHandle mRefreshHandle;
+
     private final int[] mViewLocationResult = new int[2];
     private final Rect mRect = new Rect();
 
     private final AddHeaderViewRunnable mAddHeaderViewRunnable;
 
+    private final Clock mClock;
+
+    // Recent state transitions, for diagnosing stuck refreshes
+    private final EventJournal mEventJournal = new EventJournal(EVENT_JOURNAL_CAPACITY);
+    private float mPullFraction;
+
     protected PullToRefreshAttacher(Activity activity, Options options) {
         if (activity == null) {
             throw new IllegalArgumentException("activity cannot be null");
@@ -87,29 +154,56 @@ public class PullToRefreshAttacher {
 
         mActivity = activity;
         mRefreshableViews = new WeakHashMap<View, ViewDelegate>();
+        mViewDelegateOverrides = new HashMap<Class<?>, ViewDelegate>();
+        mResolvedViewDelegates = new HashMap<Class<?>, ViewDelegate>();
 
         // Copy necessary values from options
         mRefreshScrollDistance = options.refreshScrollDistance;
-        mRefreshOnUp = options.refreshOnUp;
-        mRefreshMinimizeDelay = options.refreshMinimizeDelay;
         mRefreshMinimize = options.refreshMinimize;
+        mRefreshScheduler = options.refreshScheduler;
+        mMetricsTracker = options.refreshMetrics != null
+                ? options.refreshMetrics.newTracker() : null;
+        if (options.frameStatsListener != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameJankTracker = new FrameJankTracker(activity, options.frameStatsListener);
+        }
+        mDeferRefreshStarted = options.deferRefreshStarted;
+        mRestoreRefreshingState = options.restoreRefreshingState;
+        mTrackScrollState = options.trackScrollState;
+        mNestedScrollEnabled = options.nestedScroll
+                && Build.VERSION.SDK_INT >= NESTED_SCROLLING_MIN_SDK;
+        mTraceSections = options.traceSections;
+        mListenerWatchdog = options.listenerBudget > 0
+                ? new ListenerWatchdog(options.listenerBudget, options.slowCallbackListener)
+                : null;
 
         // EnvironmentDelegate
         mEnvironmentDelegate = options.environmentDelegate != null
                 ? options.environmentDelegate
                 : createDefaultEnvironmentDelegate();
 
+        // Create the engine, using the touch slop for this device
+        mClock = options.clock != null ? options.clock : UPTIME_CLOCK;
+        mEngine = new PullGestureEngine(ViewConfiguration.get(activity).getScaledTouchSlop(),
+                options.refreshOnUp, options.refreshMinimizeDelay,
+                options.speculativeRefreshFraction, mClock, new EngineCallback());
+
+        // Get Window Decor View
+        final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+
+        if (options.pullProgressListener != null) {
+            // We're headless, so there is no header view or window to manage
+            mHeaderTransformer = new HeadlessHeaderTransformer(options.pullProgressListener);
+            mCallbackView = decorView;
+            mAddHeaderViewRunnable = null;
+            return;
+        }
+
         // Header Transformer
         mHeaderTransformer = options.headerTransformer != null
                 ? options.headerTransformer
                 : createDefaultHeaderTransformer();
 
-        // Get touch slop for use later
-        mTouchSlop = ViewConfiguration.get(activity).getScaledTouchSlop();
-
-        // Get Window Decor View
-        final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
-
         // Create Header view and then add to Decor View
         mHeaderView = LayoutInflater.from(
                 mEnvironmentDelegate.getContextForInflater(activity)).inflate(
@@ -119,6 +213,7 @@ public class PullToRefreshAttacher {
         }
         // Make Header View invisible so it still gets a layout pass
         mHeaderView.setVisibility(View.INVISIBLE);
+        mCallbackView = mHeaderView;
 
         // Notify transformer
         mHeaderTransformer.onViewCreated(activity, mHeaderView);
@@ -144,17 +239,52 @@ public class PullToRefreshAttacher {
 
         // ViewDelegate
         if (viewDelegate == null) {
-            viewDelegate = InstanceCreationUtils.getBuiltInViewDelegate(view);
+            viewDelegate = getViewDelegate(view);
+
+            // If we're tracking scroll state, swap any built-in delegate for a tracking one
+            if (mTrackScrollState && InstanceCreationUtils.isBuiltInViewDelegate(viewDelegate)) {
+                final ViewDelegate trackingDelegate =
+                        InstanceCreationUtils.newTrackingViewDelegate(view);
+                if (trackingDelegate != null) {
+                    viewDelegate = trackingDelegate;
+                }
+            }
         }
 
         // View to detect refreshes for
-        mRefreshableViews.put(view, viewDelegate);
+        setViewDelegate(view, viewDelegate);
+    }
+
+    private void setViewDelegate(View view, ViewDelegate viewDelegate) {
+        final ViewDelegate previous = mRefreshableViews.put(view, viewDelegate);
+
+        if (previous != viewDelegate) {
+            if (previous instanceof TrackingViewDelegate) {
+                ((TrackingViewDelegate) previous).stopTracking();
+            }
+            if (viewDelegate instanceof TrackingViewDelegate) {
+                ((TrackingViewDelegate) viewDelegate).startTracking(view);
+            }
+        }
+    }
+
+    /**
+     * @return The delegate for {@code view}, from those set via {@link #useViewDelegate(Class,
+     *         ViewDelegate)} or else the built-in delegates.
+     */
+    private ViewDelegate getViewDelegate(View view) {
+        return InstanceCreationUtils.getViewDelegate(view.getClass(), mViewDelegateOverrides,
+                mResolvedViewDelegates);
     }
 
     void useViewDelegate(Class<?> viewClass, ViewDelegate delegate) {
+        mViewDelegateOverrides.put(viewClass, delegate);
+        // Any previous resolutions may now be stale
+        mResolvedViewDelegates.clear();
+
         for (View view : mRefreshableViews.keySet()) {
             if (viewClass.isInstance(view)) {
-                mRefreshableViews.put(view, delegate);
+                setViewDelegate(view, delegate);
             }
         }
     }
@@ -163,6 +293,11 @@ public class PullToRefreshAttacher {
      * Clear all views which were previously used to initiate refresh requests.
      */
     void clearRefreshableViews() {
+        for (ViewDelegate delegate : mRefreshableViews.values()) {
+            if (delegate instanceof TrackingViewDelegate) {
+                ((TrackingViewDelegate) delegate).stopTracking();
+            }
+        }
         mRefreshableViews.clear();
     }
 
@@ -191,7 +326,7 @@ public class PullToRefreshAttacher {
      * @return true if this Attacher is currently in a refreshing state.
      */
     final boolean isRefreshing() {
-        return mIsRefreshing;
+        return mEngine.isRefreshing();
     }
 
     /**
@@ -204,6 +339,54 @@ public class PullToRefreshAttacher {
         setRefreshingInt(null, false, false);
     }
 
+    /**
+     * @return The handle for the current refresh, or null if we are not refreshing.
+     */
+    final RefreshHandle getRefreshHandle() {
+        return mRefreshHandle;
+    }
+
+    /**
+     * Re-attach to a refresh which was started by a previous attacher. If the refresh is still
+     * running the header is displayed, but the OnRefreshListener is not called.
+     */
+    final void attachRefreshHandle(RefreshHandle handle) {
+        if (isDestroyed()) return;
+
+        if (handle == null || !handle.isRefreshing() || isRefreshing()) {
+            return;
+        }
+
+        mRefreshHandle = handle;
+        setRefreshingInt(null, true, false);
+        mEngine.setRefreshStartTime(handle.getStartTime());
+        onRefreshStartTimeRestored();
+    }
+
+    /**
+     * @return The time (in ms) since the current refresh started, or -1 if we are not
+     *         refreshing.
+     */
+    final long getRefreshElapsedTime() {
+        return mEngine.getRefreshElapsedTime();
+    }
+
+    /**
+     * Restore a refreshing state which was saved by {@link PullToRefreshLayout}. This is only
+     * done if {@link Options#restoreRefreshingState} is enabled.
+     */
+    final void restoreRefreshingState(long elapsedTime) {
+        if (isDestroyed()) return;
+
+        if (!mRestoreRefreshingState || isRefreshing()) {
+            return;
+        }
+
+        setRefreshingInt(null, true, false);
+        mEngine.setRefreshElapsedTime(elapsedTime);
+        onRefreshStartTimeRestored();
+    }
+
     /**
      * Set the Listener to be called when a refresh is initiated.
      */
@@ -211,21 +394,165 @@ public class PullToRefreshAttacher {
         mOnRefreshListener = listener;
     }
 
+    /**
+     * Call the OnRefreshListener for a refresh which has been started, going through the
+     * {@link RefreshScheduler} if one has been set.
+     */
+    void dispatchRefreshStarted(View view) {
+        if (mRefreshScheduler != null) {
+            journal(EventJournal.EVENT_REFRESH_QUEUED, view);
+            mRefreshScheduler.enqueue(this, view);
+        } else if (mOnRefreshListener != null) {
+            callOnRefreshStarted(view);
+        }
+    }
+
+    /**
+     * Called by the {@link RefreshScheduler} once this attacher's refresh has been given a slot.
+     */
+    void dispatchScheduledRefresh(View view) {
+        if (!mIsDestroyed && isRefreshing() && mOnRefreshListener != null) {
+            callOnRefreshStarted(view);
+        }
+    }
+
+    private void callOnRefreshStarted(View view) {
+        journal(EventJournal.EVENT_LISTENER_CALLED, view);
+        if (mMetricsTracker != null) {
+            mMetricsTracker.onRefreshStarted(mClock.uptimeMillis(), true);
+        }
+        if (mListenerWatchdog != null) {
+            final long start = mListenerWatchdog.start();
+            mOnRefreshListener.onRefreshStarted(view);
+            mListenerWatchdog.check(start, mOnRefreshListener, ListenerWatchdog.ON_REFRESH_STARTED);
+        } else {
+            mOnRefreshListener.onRefreshStarted(view);
+        }
+    }
+
+    /**
+     * Write the recent state transitions of this attacher, oldest first. This can be called
+     * after the attacher has been destroyed.
+     */
+    void dumpEventJournal(PrintWriter writer) {
+        mEventJournal.dump(writer, mClock.uptimeMillis());
+    }
+
+    /**
+     * Record a state transition in the event journal. This does not allocate.
+     */
+    private void journal(int code, View view) {
+        mEventJournal.record(mClock.uptimeMillis(), code, mPullFraction,
+                view != null ? view.getId() : View.NO_ID);
+    }
+
+    /**
+     * @return The priority which the {@link RefreshScheduler} should give this attacher's
+     *         refresh. Refreshes are in the foreground when the header is visible and the window
+     *         has focus, and off-screen when none of the refreshable views are on screen.
+     */
+    int getRefreshPriority() {
+        if (mIsDestroyed) {
+            return REFRESH_PRIORITY_OFFSCREEN;
+        }
+
+        boolean shown = false;
+        for (View view : mRefreshableViews.keySet()) {
+            // isShown() is still true for ViewPager pages and views which have been scrolled
+            // out of their parent, so check that some of the view is actually on screen
+            if (view.isShown() && view.getGlobalVisibleRect(mRect)) {
+                shown = true;
+                break;
+            }
+        }
+        if (!shown) {
+            return REFRESH_PRIORITY_OFFSCREEN;
+        }
+
+        final boolean headerShown = mHeaderView != null
+                ? mHeaderView.getVisibility() == View.VISIBLE
+                : ((HeadlessHeaderTransformer) mHeaderTransformer).isShown();
+        if (headerShown && mActivity.hasWindowFocus()) {
+            return REFRESH_PRIORITY_FOREGROUND;
+        }
+        return REFRESH_PRIORITY_BACKGROUND;
+    }
+
+    /**
+     * Called when the visibility or window focus of the layout has changed, so that any deferred
+     * refresh can be dispatched.
+     */
+    void onVisibilityChanged() {
+        if (mRefreshScheduler != null && isRefreshing()) {
+            mRefreshScheduler.schedule();
+        }
+    }
+
+    /**
+     * Share refreshes of the data identified by {@code key} with any other attachers registered
+     * on the same {@link RefreshCoordinator}.
+     */
+    void setRefreshCoordinator(RefreshCoordinator coordinator, Object key) {
+        if (isDestroyed()) return;
+
+        if (mRefreshCoordinator != null) {
+            mRefreshCoordinator.unregister(this, mRefreshKey);
+        }
+        mRefreshCoordinator = coordinator;
+        mRefreshKey = key;
+
+        if (coordinator != null) {
+            coordinator.register(this, key);
+        }
+    }
+
     void destroy() {
         if (mIsDestroyed) return; // We've already been destroyed
 
         // Remove the Header View from the Activity
-        removeHeaderViewFromActivity(mHeaderView);
+        if (mHeaderView != null) {
+            removeHeaderViewFromActivity(mHeaderView);
+        }
+
+        // Stop waiting on any shared refresh
+        if (mRefreshCoordinator != null) {
+            mRefreshCoordinator.unregister(this, mRefreshKey);
+            mRefreshCoordinator = null;
+            mRefreshKey = null;
+        }
+
+        // Abandon any speculative refresh
+        abandonSpeculativeRefresh();
+
+        // Leave any refresh handle running, so that it can be re-attached later
+        if (mRefreshHandle != null) {
+            mRefreshHandle.detach(this);
+            mRefreshHandle = null;
+        }
+
+        // Give up any scheduler slot
+        if (mRefreshScheduler != null) {
+            mRefreshScheduler.remove(this);
+            mRefreshScheduler = null;
+        }
+
+        // Stop tracking frames, without reporting the unfinished episodes
+        if (mFrameJankTracker != null) {
+            mFrameJankTracker.stop();
+            mFrameJankTracker = null;
+        }
 
         // Lets clear out all of our internal state
         clearRefreshableViews();
 
         mActivity = null;
         mHeaderView = null;
+        mCallbackView = null;
         mHeaderViewListener = null;
         mEnvironmentDelegate = null;
         mHeaderTransformer = null;
 
+        journal(EventJournal.EVENT_DESTROYED, null);
         mIsDestroyed = true;
     }
 
@@ -252,219 +579,291 @@ public class PullToRefreshAttacher {
         return mHeaderTransformer;
     }
 
+    void setTouchRecorder(TouchRecorder recorder) {
+        mTouchRecorder = recorder;
+    }
+
     final boolean onInterceptTouchEvent(MotionEvent event) {
         if (DEBUG) {
             Log.d(LOG_TAG, "onInterceptTouchEvent: " + event.toString());
         }
 
-        // If we're not enabled or currently refreshing don't handle any touch
-        // events
-        if (isRefreshing()) {
-            return false;
+        if (mTouchRecorder != null) {
+            mTouchRecorder.record(TouchRecording.DISPATCH_INTERCEPT, event);
         }
 
-        final float x = event.getX(), y = event.getY();
+        beginTrace(TRACE_INTERCEPT_TOUCH);
+        final boolean dragged = mEngine.onInterceptTouchEvent(event.getAction(), event.getX(),
+                event.getY(), findViewReadyForPull(event));
+        endTrace();
+        trackGestureEnd(event);
 
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_MOVE: {
-                // We're not currently being dragged so check to see if the user has
-                // scrolled enough
-                if (!mIsBeingDragged && mInitialMotionY > 0f) {
-                    final float yDiff = y - mInitialMotionY;
-                    final float xDiff = x - mInitialMotionX;
+        if (DEBUG) Log.d(LOG_TAG, "onInterceptTouchEvent. Returning " + dragged);
 
-                    if (Math.abs(yDiff) > Math.abs(xDiff) && yDiff > mTouchSlop) {
-                        mIsBeingDragged = true;
-                        onPullStarted(y);
-                    } else if (yDiff < -mTouchSlop) {
-                        resetTouch();
-                    }
-                }
-                break;
-            }
+        return dragged;
+    }
 
-            case MotionEvent.ACTION_DOWN: {
-                // If we're already refreshing, ignore
-                if (canRefresh(true)) {
-                    for (View view : mRefreshableViews.keySet()) {
-                        if (isViewBeingDragged(view, event)) {
-                            mInitialMotionX = x;
-                            mInitialMotionY = y;
-                            mViewBeingDragged = view;
-                        }
-                    }
+    /**
+     * On ACTION_DOWN, find the refreshable view which is ready to be pulled under {@code event}
+     * and make it the view being dragged.
+     *
+     * @return true if one was found.
+     */
+    private boolean findViewReadyForPull(MotionEvent event) {
+        boolean found = false;
+        // If we're already refreshing, ignore
+        if (event.getAction() == MotionEvent.ACTION_DOWN && canRefresh(true)) {
+            for (View view : mRefreshableViews.keySet()) {
+                if (isViewBeingDragged(view, event)) {
+                    mViewBeingDragged = view;
+                    found = true;
                 }
-                break;
             }
-
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP: {
-                resetTouch();
-                break;
+            if (found && mMetricsTracker != null) {
+                mMetricsTracker.onDown(mClock.uptimeMillis());
             }
         }
-
-        if (DEBUG) Log.d(LOG_TAG, "onInterceptTouchEvent. Returning " + mIsBeingDragged);
-
-        return mIsBeingDragged;
+        return found;
     }
 
     final boolean isViewBeingDragged(View view, MotionEvent event) {
-        if (view.isShown() && mRefreshableViews.containsKey(view)) {
-            // First we need to set the rect to the view's screen co-ordinates
-            view.getLocationOnScreen(mViewLocationResult);
-            final int viewLeft = mViewLocationResult[0], viewTop = mViewLocationResult[1];
-            mRect.set(viewLeft, viewTop, viewLeft + view.getWidth(), viewTop + view.getHeight());
-
-            if (DEBUG) Log.d(LOG_TAG, "isViewBeingDragged. View Rect: " + mRect.toString());
-
+        beginTrace(TRACE_VIEW_BEING_DRAGGED);
+        boolean ready = false;
+        if (mRefreshableViews.containsKey(view)) {
             final int rawX = (int) event.getRawX(), rawY = (int) event.getRawY();
-            if (mRect.contains(rawX, rawY)) {
+            if (isViewUnder(view, rawX, rawY)) {
                 // The Touch Event is within the View's display Rect
                 ViewDelegate delegate = mRefreshableViews.get(view);
                 if (delegate != null) {
                     // Now call the delegate, converting the X/Y into the View's co-ordinate system
-                    return delegate.isReadyForPull(view, rawX - mRect.left, rawY - mRect.top);
+                    beginTrace(TRACE_READY_FOR_PULL);
+                    ready = delegate.isReadyForPull(view, rawX - mRect.left, rawY - mRect.top);
+                    endTrace();
                 }
             }
         }
-        return false;
+        endTrace();
+        return ready;
     }
 
-    final boolean onTouchEvent(MotionEvent event) {
-        if (DEBUG) {
-            Log.d(LOG_TAG, "onTouchEvent: " + event.toString());
+    /**
+     * @return The refreshable view which is displayed under the given screen co-ordinates, or
+     *         null if there isn't one. The view's delegate is not consulted.
+     */
+    final View findRefreshableViewAt(float rawX, float rawY) {
+        for (View view : mRefreshableViews.keySet()) {
+            if (isViewUnder(view, (int) rawX, (int) rawY)) {
+                return view;
+            }
         }
+        return null;
+    }
 
-        // Record whether our handling is started from ACTION_DOWN
-        if (event.getAction() == MotionEvent.ACTION_DOWN) {
-            mHandlingTouchEventFromDown = true;
+    /**
+     * Sets {@link #mRect} to {@code view}'s screen co-ordinates, and returns whether they contain
+     * the given point.
+     */
+    private boolean isViewUnder(View view, int rawX, int rawY) {
+        if (!view.isShown()) {
+            return false;
         }
+        view.getLocationOnScreen(mViewLocationResult);
+        final int viewLeft = mViewLocationResult[0], viewTop = mViewLocationResult[1];
+        mRect.set(viewLeft, viewTop, viewLeft + view.getWidth(), viewTop + view.getHeight());
 
-        // If we're being called from ACTION_DOWN then we must call through to
-        // onInterceptTouchEvent until it sets mIsBeingDragged
-        if (mHandlingTouchEventFromDown && !mIsBeingDragged) {
-            onInterceptTouchEvent(event);
-            return true;
-        }
+        if (DEBUG) Log.d(LOG_TAG, "isViewUnder. View Rect: " + mRect.toString());
 
-        if (mViewBeingDragged == null) {
-            return false;
-        }
+        return mRect.contains(rawX, rawY);
+    }
 
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_MOVE: {
-                // If we're already refreshing ignore it
-                if (isRefreshing()) {
-                    return false;
-                }
+    /**
+     * @return true if pulls are detected from nested scrolling, rather than by intercepting
+     *         touch events.
+     */
+    final boolean isNestedScrollEnabled() {
+        return mNestedScrollEnabled;
+    }
 
-                final float y = event.getY();
-
-                if (mIsBeingDragged && y != mLastMotionY) {
-                    final float yDx = y - mLastMotionY;
-
-                    /**
-                     * Check to see if the user is scrolling the right direction
-                     * (down). We allow a small scroll up which is the check against
-                     * negative touch slop.
-                     */
-                    if (yDx >= -mTouchSlop) {
-                        onPull(mViewBeingDragged, y);
-                        // Only record the y motion if the user has scrolled down.
-                        if (yDx > 0f) {
-                            mLastMotionY = y;
-                        }
-                    } else {
-                        onPullEnded();
-                        resetTouch();
-                    }
-                }
-                break;
-            }
+    /**
+     * @return true if a pull which was started from nested scrolling is in progress.
+     */
+    final boolean isNestedPullInProgress() {
+        return mNestedScrollEnabled && mEngine.isBeingDragged();
+    }
 
-            case MotionEvent.ACTION_CANCEL:
-            case MotionEvent.ACTION_UP: {
-                checkScrollForRefresh(mViewBeingDragged);
-                if (mIsBeingDragged) {
-                    onPullEnded();
-                }
-                resetTouch();
-                break;
+    /**
+     * Called from nested scrolling when {@code target} is at the top and the user has pulled
+     * {@code distance} further (or back, if negative).
+     */
+    final void onNestedPull(View target, float distance) {
+        if (isDestroyed() || isRefreshing()) return;
+
+        boolean ready = false;
+        if (!mEngine.isBeingDragged()) {
+            // Only start pulling from a refreshable view which is ready
+            ready = canRefresh(true) && mRefreshableViews.containsKey(target);
+            if (ready) {
+                mViewBeingDragged = target;
             }
         }
 
-        return true;
+        mEngine.onNestedPull(distance, mClock.uptimeMillis(), ready,
+                getScrollNeededForRefresh(target));
+    }
+
+    /**
+     * Called when the nested scroll has stopped, which is the equivalent of ACTION_UP.
+     */
+    final void onNestedPullEnded() {
+        mEngine.onNestedPullEnded(mViewBeingDragged != null
+                ? getScrollNeededForRefresh(mViewBeingDragged) : 0f);
+    }
+
+    final boolean onTouchEvent(MotionEvent event) {
+        if (DEBUG) {
+            Log.d(LOG_TAG, "onTouchEvent: " + event.toString());
+        }
+
+        if (mTouchRecorder != null) {
+            mTouchRecorder.record(TouchRecording.DISPATCH_TOUCH, event);
+        }
+
+        beginTrace(TRACE_TOUCH);
+
+        // Find the view first, as it may become the view being dragged
+        final boolean readyForPull = findViewReadyForPull(event);
+        final float scrollNeeded = mViewBeingDragged != null
+                ? getScrollNeededForRefresh(mViewBeingDragged) : 0f;
+
+        final boolean handled = mEngine.onTouchEvent(event.getAction(), event.getX(),
+                event.getY(), event.getEventTime(), readyForPull, scrollNeeded);
+        endTrace();
+        trackGestureEnd(event);
+        return handled;
+    }
+
+    private void trackGestureEnd(MotionEvent event) {
+        final int action = event.getAction();
+        if (mMetricsTracker != null
+                && (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)) {
+            mMetricsTracker.onUp();
+        }
     }
 
     void minimizeHeader() {
         if (isDestroyed()) return;
 
+        beginTrace(TRACE_REFRESH_MINIMIZED);
         mHeaderTransformer.onRefreshMinimized();
-
-        if (mHeaderViewListener != null) {
-            mHeaderViewListener.onStateChanged(mHeaderView, HeaderViewListener.STATE_MINIMIZED);
+        endTrace();
+        if (mFrameJankTracker != null) {
+            mFrameJankTracker.startEpisode(OnFrameStatsListener.EPISODE_MINIMIZE_HEADER);
         }
-    }
+        journal(EventJournal.EVENT_HEADER_MINIMIZED, null);
 
-    void resetTouch() {
-        mIsBeingDragged = false;
-        mHandlingTouchEventFromDown = false;
-        mInitialMotionY = mLastMotionY = mPullBeginY = -1f;
+        dispatchHeaderStateChanged(HeaderViewListener.STATE_MINIMIZED);
     }
 
-    void onPullStarted(float y) {
+    void onPullStarted() {
         if (DEBUG) {
             Log.d(LOG_TAG, "onPullStarted");
         }
+        journal(EventJournal.EVENT_PULL_STARTED, mViewBeingDragged);
+        if (mMetricsTracker != null) {
+            mMetricsTracker.onPullStarted(mClock.uptimeMillis());
+        }
+        if (mFrameJankTracker != null) {
+            mFrameJankTracker.startEpisode(OnFrameStatsListener.EPISODE_PULL);
+        }
         showHeaderView();
-        mPullBeginY = y;
     }
 
-    void onPull(View view, float y) {
+    void onPullEnded() {
         if (DEBUG) {
-            Log.d(LOG_TAG, "onPull");
+            Log.d(LOG_TAG, "onPullEnded");
+        }
+        journal(EventJournal.EVENT_PULL_ENDED, mViewBeingDragged);
+        if (mMetricsTracker != null) {
+            mMetricsTracker.onPullEnded();
+        }
+        if (mFrameJankTracker != null) {
+            mFrameJankTracker.finishEpisode(OnFrameStatsListener.EPISODE_PULL);
         }
+        abandonSpeculativeRefresh();
+        reset(true);
+    }
 
-        final float pxScrollForRefresh = getScrollNeededForRefresh(view);
-        final float scrollLength = y - mPullBeginY;
+    /**
+     * Give the listener an early chance to start refreshing, as the engine thinks that the pull
+     * will probably reach the threshold.
+     */
+    private void prepareSpeculativeRefresh() {
+        if (mPrepareToken != null
+                || !(mOnRefreshListener instanceof OnRefreshPrepareListener)) {
+            return;
+        }
 
-        if (scrollLength < pxScrollForRefresh) {
-            mHeaderTransformer.onPulled(scrollLength / pxScrollForRefresh);
-        } else {
-            if (mRefreshOnUp) {
-                mHeaderTransformer.onReleaseToRefresh();
-            } else {
-                setRefreshingInt(view, true, true);
-            }
+        if (DEBUG) Log.d(LOG_TAG, "prepareSpeculativeRefresh. Preparing refresh");
+
+        mPrepareToken = new CancelToken();
+        final long start = mListenerWatchdog != null ? mListenerWatchdog.start() : 0;
+        ((OnRefreshPrepareListener) mOnRefreshListener).onRefreshPrepare(mViewBeingDragged,
+                mPrepareToken);
+        if (mListenerWatchdog != null) {
+            mListenerWatchdog.check(start, mOnRefreshListener, ListenerWatchdog.ON_REFRESH_PREPARE);
         }
     }
 
-    void onPullEnded() {
-        if (DEBUG) {
-            Log.d(LOG_TAG, "onPullEnded");
-        }
-        if (!mIsRefreshing) {
-            reset(true);
+    private void abandonSpeculativeRefresh() {
+        if (mPrepareToken != null) {
+            mPrepareToken.cancel();
+            mPrepareToken = null;
         }
     }
 
     void showHeaderView() {
-        updateHeaderViewPosition(mHeaderView);
-        if (mHeaderTransformer.showHeaderView()) {
-            if (mHeaderViewListener != null) {
-                mHeaderViewListener.onStateChanged(mHeaderView,
-                        HeaderViewListener.STATE_VISIBLE);
+        if (mHeaderView != null) {
+            beginTrace(TRACE_UPDATE_HEADER);
+            updateHeaderViewPosition(mHeaderView);
+            endTrace();
+        }
+
+        beginTrace(TRACE_SHOW_HEADER);
+        final boolean shown = mHeaderTransformer.showHeaderView();
+        endTrace();
+        if (shown) {
+            journal(EventJournal.EVENT_HEADER_SHOWN, null);
+            if (mMetricsTracker != null) {
+                Compat.postOnAnimation(mCallbackView, mHeaderShownFrameRunnable);
+            }
+            if (mFrameJankTracker != null) {
+                mFrameJankTracker.startEpisode(OnFrameStatsListener.EPISODE_SHOW_HEADER);
             }
+            dispatchHeaderStateChanged(HeaderViewListener.STATE_VISIBLE);
+        }
+    }
+
+    private void dispatchHeaderStateChanged(int state) {
+        if (mHeaderViewListener == null) {
+            return;
+        }
+        final long start = mListenerWatchdog != null ? mListenerWatchdog.start() : 0;
+        mHeaderViewListener.onStateChanged(mHeaderView, state);
+        if (mListenerWatchdog != null) {
+            mListenerWatchdog.check(start, mHeaderViewListener, ListenerWatchdog.ON_STATE_CHANGED);
         }
     }
 
     void hideHeaderView() {
-        if (mHeaderTransformer.hideHeaderView()) {
-            if (mHeaderViewListener != null) {
-                mHeaderViewListener.onStateChanged(mHeaderView,
-                        HeaderViewListener.STATE_HIDDEN);
+        beginTrace(TRACE_HIDE_HEADER);
+        final boolean hidden = mHeaderTransformer.hideHeaderView();
+        endTrace();
+        if (hidden) {
+            journal(EventJournal.EVENT_HEADER_HIDDEN, null);
+            if (mFrameJankTracker != null) {
+                mFrameJankTracker.startEpisode(OnFrameStatsListener.EPISODE_HIDE_HEADER);
             }
+            dispatchHeaderStateChanged(HeaderViewListener.STATE_HIDDEN);
         }
     }
 
@@ -495,26 +894,16 @@ public class PullToRefreshAttacher {
         return new DefaultHeaderTransformer();
     }
 
-    private boolean checkScrollForRefresh(View view) {
-        if (mIsBeingDragged && mRefreshOnUp && view != null) {
-            if (mLastMotionY - mPullBeginY >= getScrollNeededForRefresh(view)) {
-                setRefreshingInt(view, true, true);
-                return true;
-            }
-        }
-        return false;
-    }
-
     private void setRefreshingInt(View view, boolean refreshing, boolean fromTouch) {
         if (isDestroyed()) return;
 
         if (DEBUG) Log.d(LOG_TAG, "setRefreshingInt: " + refreshing);
         // Check to see if we need to do anything
-        if (mIsRefreshing == refreshing) {
+        if (isRefreshing() == refreshing) {
             return;
         }
 
-        resetTouch();
+        mEngine.resetTouch();
 
         if (refreshing && canRefresh(fromTouch)) {
             startRefresh(view, fromTouch);
@@ -529,7 +918,7 @@ public class PullToRefreshAttacher {
      *         started.
      */
     private boolean canRefresh(boolean fromTouch) {
-        return !mIsRefreshing && (!fromTouch || mOnRefreshListener != null);
+        return !isRefreshing() && (!fromTouch || mOnRefreshListener != null);
     }
 
     private float getScrollNeededForRefresh(View view) {
@@ -537,12 +926,49 @@ public class PullToRefreshAttacher {
     }
 
     private void reset(boolean fromTouch) {
+        final boolean wasRefreshing = isRefreshing();
+
         // Update isRefreshing state
-        mIsRefreshing = false;
+        mEngine.setRefreshing(false);
+
+        // Let any other attachers waiting on the same refresh know that it has finished
+        if (wasRefreshing && mRefreshCoordinator != null) {
+            mRefreshCoordinator.onRefreshComplete(this, mRefreshKey);
+        }
+
+        if (wasRefreshing && mMetricsTracker != null) {
+            mMetricsTracker.onRefreshComplete(mClock.uptimeMillis());
+        }
+
+        journal(wasRefreshing ? EventJournal.EVENT_REFRESH_COMPLETE : EventJournal.EVENT_RESET,
+                mViewBeingDragged);
+        mPullFraction = 0f;
+
+        // Free our slot so that the next queued refresh can start
+        if (wasRefreshing && mRefreshScheduler != null) {
+            mRefreshScheduler.remove(this);
+        }
+
+        // The refresh has finished, so release its handle
+        if (mRefreshHandle != null) {
+            mRefreshHandle.onRefreshComplete(this);
+            mRefreshHandle = null;
+        }
 
         // Remove any minimize callbacks
         if (mRefreshMinimize) {
-            getHeaderView().removeCallbacks(mRefreshMinimizeRunnable);
+            mCallbackView.removeCallbacks(mRefreshMinimizeRunnable);
+        }
+
+        if (mMetricsTracker != null) {
+            mCallbackView.removeCallbacks(mRefreshShownFrameRunnable);
+        }
+
+        // Remove any deferred OnRefreshListener call
+        if (mDeferRefreshStarted) {
+            mCallbackView.removeCallbacks(mRefreshStartedFrameRunnable);
+            mCallbackView.removeCallbacks(mDispatchRefreshStartedRunnable);
+            mDeferredRefreshView = null;
         }
 
         // Hide Header View
@@ -551,32 +977,106 @@ public class PullToRefreshAttacher {
 
     private void startRefresh(View view, boolean fromTouch) {
         // Update isRefreshing state
-        mIsRefreshing = true;
+        mEngine.setRefreshing(true);
+        journal(fromTouch ? EventJournal.EVENT_REFRESH_STARTED_FROM_TOUCH
+                : EventJournal.EVENT_REFRESH_STARTED, view);
+
+        if (mMetricsTracker != null) {
+            mMetricsTracker.onRefreshStarted(mEngine.getRefreshStartTime(), false);
+        }
+
+        // Create a handle for the refresh, unless we're re-attaching to an existing one
+        if (mRefreshHandle == null) {
+            mRefreshHandle = new RefreshHandle(mEngine.getRefreshStartTime(), mClock);
+        }
+        mRefreshHandle.attach(this);
 
-        // Call OnRefreshListener if this call has originated from a touch event
-        if (fromTouch) {
-            if (mOnRefreshListener != null) {
-                mOnRefreshListener.onRefreshStarted(view);
+        // Commit any speculative refresh if the user pulled, otherwise it is now redundant
+        if (mPrepareToken != null) {
+            if (fromTouch) {
+                mPrepareToken.commit();
+                mPrepareToken = null;
+            } else {
+                abandonSpeculativeRefresh();
             }
         }
 
-        // Call Transformer
-        mHeaderTransformer.onRefreshStarted();
+        if (mDeferRefreshStarted) {
+            // Commit the header state first, and call the listener once the header has drawn
+            dispatchTransformerRefreshStarted();
+            showHeaderView();
 
-        // Show Header View
-        showHeaderView();
+            mDeferredRefreshView = view;
+            mDeferredRefreshFromTouch = fromTouch;
+            Compat.postOnAnimation(mCallbackView, mRefreshStartedFrameRunnable);
+        } else {
+            notifyRefreshStarted(view, fromTouch);
+
+            // Call Transformer
+            dispatchTransformerRefreshStarted();
+
+            // Show Header View
+            showHeaderView();
+
+            if (mMetricsTracker != null) {
+                Compat.postOnAnimation(mCallbackView, mRefreshShownFrameRunnable);
+            }
+        }
 
         // Post a runnable to minimize the refresh header
         if (mRefreshMinimize) {
-            if (mRefreshMinimizeDelay > 0) {
-                getHeaderView().postDelayed(mRefreshMinimizeRunnable, mRefreshMinimizeDelay);
-            } else {
-                getHeaderView().post(mRefreshMinimizeRunnable);
-            }
+            postMinimizeHeader(mEngine.getMinimizeDelay());
         }
     }
 
-    private boolean isDestroyed() {
+    private void dispatchTransformerRefreshStarted() {
+        beginTrace(TRACE_REFRESH_STARTED);
+        mHeaderTransformer.onRefreshStarted();
+        endTrace();
+    }
+
+    private void beginTrace(String sectionName) {
+        if (mTraceSections) {
+            Compat.beginTraceSection(sectionName);
+        }
+    }
+
+    private void endTrace() {
+        if (mTraceSections) {
+            Compat.endTraceSection();
+        }
+    }
+
+    private void postMinimizeHeader(long delay) {
+        if (delay > 0) {
+            mCallbackView.postDelayed(mRefreshMinimizeRunnable, delay);
+        } else {
+            mCallbackView.post(mRefreshMinimizeRunnable);
+        }
+    }
+
+    /**
+     * Called once the engine's refresh start time has been moved back, so that the header is
+     * minimized as if the refresh had been running in this attacher since then.
+     */
+    private void onRefreshStartTimeRestored() {
+        if (mRefreshMinimize) {
+            mCallbackView.removeCallbacks(mRefreshMinimizeRunnable);
+            postMinimizeHeader(mEngine.getMinimizeDelay());
+        }
+    }
+
+    private void notifyRefreshStarted(View view, boolean fromTouch) {
+        // Call OnRefreshListener if this call has originated from a touch event. If we're
+        // coordinated, the coordinator decides whether this refresh shares an in-flight one
+        if (mRefreshCoordinator != null) {
+            mRefreshCoordinator.onRefreshStarted(this, mRefreshKey, view, fromTouch);
+        } else if (fromTouch) {
+            dispatchRefreshStarted(view);
+        }
+    }
+
+    boolean isDestroyed() {
         if (mIsDestroyed) {
             Log.i(LOG_TAG, "PullToRefreshAttacher is destroyed.");
         }
@@ -636,6 +1136,64 @@ public class PullToRefreshAttacher {
         }
     }
 
+    private static final Clock UPTIME_CLOCK = new Clock() {
+        @Override
+        public long uptimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    private class EngineCallback implements PullGestureEngine.Callback {
+        @Override
+        public void onPullStarted() {
+            PullToRefreshAttacher.this.onPullStarted();
+        }
+
+        @Override
+        public void onPulled(float fraction) {
+            mPullFraction = fraction;
+            beginTrace(TRACE_PULLED);
+            mHeaderTransformer.onPulled(fraction);
+            endTrace();
+        }
+
+        @Override
+        public void onPrepareRefresh() {
+            // This is called on every move past the speculative fraction, so only journal once
+            if (mEventJournal.getLastCode() != EventJournal.EVENT_PREPARE_REFRESH) {
+                journal(EventJournal.EVENT_PREPARE_REFRESH, mViewBeingDragged);
+            }
+            prepareSpeculativeRefresh();
+        }
+
+        @Override
+        public void onReleaseToRefresh() {
+            if (mEventJournal.getLastCode() != EventJournal.EVENT_RELEASE_TO_REFRESH) {
+                journal(EventJournal.EVENT_RELEASE_TO_REFRESH, mViewBeingDragged);
+            }
+            if (mMetricsTracker != null) {
+                mMetricsTracker.onThresholdReached(mClock.uptimeMillis());
+            }
+            beginTrace(TRACE_RELEASE_TO_REFRESH);
+            mHeaderTransformer.onReleaseToRefresh();
+            endTrace();
+        }
+
+        @Override
+        public void onRefreshRequested() {
+            // Without refreshOnUp there is no onReleaseToRefresh(), so the threshold is reached now
+            if (mMetricsTracker != null) {
+                mMetricsTracker.onThresholdReached(mClock.uptimeMillis());
+            }
+            setRefreshingInt(mViewBeingDragged, true, true);
+        }
+
+        @Override
+        public void onPullEnded() {
+            PullToRefreshAttacher.this.onPullEnded();
+        }
+    }
+
     private final Runnable mRefreshMinimizeRunnable = new Runnable() {
         @Override
         public void run() {
@@ -643,6 +1201,52 @@ public class PullToRefreshAttacher {
         }
     };
 
+    /**
+     * Runs during the frame which displays the header, so that the time to feedback can be
+     * recorded.
+     */
+    private final Runnable mHeaderShownFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mIsDestroyed) return;
+            mMetricsTracker.onHeaderFirstDrawn(mClock.uptimeMillis());
+        }
+    };
+
+    private final Runnable mRefreshShownFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mIsDestroyed) return;
+            mMetricsTracker.onRefreshFirstDrawn(mClock.uptimeMillis());
+        }
+    };
+
+    /**
+     * Runs during the frame which first displays the refreshing header. We then post again so
+     * that the listener is called after that frame has been drawn.
+     */
+    private final Runnable mRefreshStartedFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mIsDestroyed || !isRefreshing()) return;
+            if (mMetricsTracker != null) {
+                mMetricsTracker.onRefreshFirstDrawn(mClock.uptimeMillis());
+            }
+            mCallbackView.post(mDispatchRefreshStartedRunnable);
+        }
+    };
+
+    private final Runnable mDispatchRefreshStartedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mIsDestroyed || !isRefreshing()) return;
+
+            final View view = mDeferredRefreshView;
+            mDeferredRefreshView = null;
+            notifyRefreshStarted(view, mDeferredRefreshFromTouch);
+        }
+    };
+
     private class AddHeaderViewRunnable implements Runnable {
         @Override
         public void run() {
@@ -650,7 +1254,9 @@ public class PullToRefreshAttacher {
 
             if (getDecorView().getWindowToken() != null) {
                 // The Decor View has a Window Token, so we can add the HeaderView!
+                beginTrace(TRACE_ADD_HEADER);
                 addHeaderViewToActivity(mHeaderView);
+                endTrace();
             } else {
                 // The Decor View doesn't have a Window Token yet, post ourselves again...
                 start();
@@ -20,14 +20,18 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.TypedArray;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 
+import java.io.PrintWriter;
 import java.util.HashSet;
 
 import uk.co.senab.actionbarpulltorefresh.library.listeners.HeaderViewListener;
@@ -44,8 +48,25 @@ public class PullToRefreshLayout extends FrameLayout {
     private static final boolean DEBUG = false;
     private static final String LOG_TAG = "PullToRefreshLayout";
 
+    // View.SCROLL_AXIS_VERTICAL, which was added in API v21
+    private static final int SCROLL_AXIS_VERTICAL = 1 << 1;
+
     private PullToRefreshAttacher mPullToRefreshAttacher;
 
+    // The ViewGroup containing the refreshable views, if we are not in the view hierarchy
+    private ViewGroup mExternalContent;
+    // The last configuration and visibility seen from mExternalContent
+    private Configuration mExternalContentConfiguration;
+    private boolean mExternalContentShown;
+    // Non-null if our touch events are routed from the Activity's Window
+    private WindowTouchInterceptor mTouchRouter;
+
+    // Non-null if the touch events our attacher handles are being recorded
+    private TouchRecorder mTouchRecorder;
+
+    // Refreshing state which was restored before we were setup
+    private long mPendingRestoredElapsedTime = -1;
+
     public PullToRefreshLayout(Context context) {
         this(context, null);
     }
@@ -89,6 +110,29 @@ public class PullToRefreshLayout extends FrameLayout {
         mPullToRefreshAttacher.setRefreshComplete();
     }
 
+    /**
+     * @return The handle for the current refresh, or null if we are not refreshing. Keep hold of
+     *         this across configuration changes so that the refresh can be re-attached to the
+     *         recreated layout with {@link #attachRefreshHandle(RefreshHandle)}.
+     */
+    public final RefreshHandle getRefreshHandle() {
+        ensureAttacher();
+        return mPullToRefreshAttacher.getRefreshHandle();
+    }
+
+    /**
+     * Re-attach to a refresh which was started by a previous layout, for instance before a
+     * configuration change. If the refresh is still running the header will be displayed, without
+     * the OnRefreshListener being called.
+     *
+     * @param handle
+     *            - Handle retrieved from {@link #getRefreshHandle()}.
+     */
+    public final void attachRefreshHandle(RefreshHandle handle) {
+        ensureAttacher();
+        mPullToRefreshAttacher.attachRefreshHandle(handle);
+    }
+
     /**
      * Set a {@link uk.co.senab.actionbarpulltorefresh.library.listeners.HeaderViewListener} which is called when the visibility
      * state of the Header View has changed.
@@ -102,7 +146,7 @@ public class PullToRefreshLayout extends FrameLayout {
 
     /**
      * @return The Header View which is displayed when the user is pulling, or
-     *         we are refreshing.
+     *         we are refreshing. This is null when running headless.
      */
     public final View getHeaderView() {
         ensureAttacher();
@@ -117,13 +161,39 @@ public class PullToRefreshLayout extends FrameLayout {
         return mPullToRefreshAttacher.getHeaderTransformer();
     }
 
+    /**
+     * Record every touch event handled by this layout into {@code recorder}, so that the
+     * gestures can later be replayed with {@link TouchReplayer}. Pass null to stop recording.
+     */
+    public final void setTouchRecorder(TouchRecorder recorder) {
+        mTouchRecorder = recorder;
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.setTouchRecorder(recorder);
+        }
+    }
+
+    /**
+     * Write the recent refresh state transitions of this layout (pulls, refreshes starting and
+     * completing, header visibility) to {@code writer}, oldest first. Call this from a watchdog
+     * or crash reporter when a refresh looks to be stuck. Recording the transitions does not
+     * allocate, so it is always enabled.
+     */
+    public final void dumpEventJournal(PrintWriter writer) {
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.dumpEventJournal(writer);
+        } else {
+            writer.println("EventJournal: not setup");
+            writer.flush();
+        }
+    }
 
     @Override
     public final boolean onInterceptTouchEvent(MotionEvent event) {
         if (DEBUG) {
             Log.d(LOG_TAG, "onInterceptTouchEvent. " + event.toString());
         }
-        if (isEnabled() && mPullToRefreshAttacher != null && getChildCount() > 0) {
+        if (isEnabled() && mPullToRefreshAttacher != null && getChildCount() > 0
+                && mTouchRouter == null && !mPullToRefreshAttacher.isNestedScrollEnabled()) {
             return mPullToRefreshAttacher.onInterceptTouchEvent(event);
         }
         return false;
@@ -134,12 +204,64 @@ public class PullToRefreshLayout extends FrameLayout {
         if (DEBUG) {
             Log.d(LOG_TAG, "onTouchEvent. " + event.toString());
         }
-        if (isEnabled() && mPullToRefreshAttacher != null) {
+        if (isEnabled() && mPullToRefreshAttacher != null && mTouchRouter == null
+                && !mPullToRefreshAttacher.isNestedScrollEnabled()) {
             return mPullToRefreshAttacher.onTouchEvent(event);
         }
         return super.onTouchEvent(event);
     }
 
+    /*
+     * Nested scrolling callbacks. These override the ViewGroup methods added in API v21, which
+     * are not available in the SDK we compile against, so they can not be annotated with
+     * @Override. They are only called on API v21+ devices, for children which have nested
+     * scrolling enabled.
+     */
+
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && mPullToRefreshAttacher != null
+                && mPullToRefreshAttacher.isNestedScrollEnabled()
+                && (nestedScrollAxes & SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        // NO-OP
+    }
+
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        // If we're pulling and the user scrolls back up, reduce the pull before the child scrolls
+        if (dy > 0 && mPullToRefreshAttacher != null
+                && mPullToRefreshAttacher.isNestedPullInProgress()) {
+            mPullToRefreshAttacher.onNestedPull(target, -dy);
+            consumed[1] = dy;
+        }
+    }
+
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed,
+            int dyUnconsumed) {
+        // A negative unconsumed dy means the child is at the top and the user is pulling down
+        if (dyUnconsumed < 0 && mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onNestedPull(target, -dyUnconsumed);
+        }
+    }
+
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        // Don't let the child fling while we're pulling
+        return mPullToRefreshAttacher != null
+                && mPullToRefreshAttacher.isNestedPullInProgress();
+    }
+
+    public boolean onNestedFling(View target, float velocityX, float velocityY,
+            boolean consumed) {
+        return false;
+    }
+
+    public void onStopNestedScroll(View target) {
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onNestedPullEnded();
+        }
+    }
+
     @Override
     public FrameLayout.LayoutParams generateLayoutParams(AttributeSet attrs) {
         return new PullToRefreshLayout.LayoutParams(getContext(), attrs);
@@ -151,9 +273,37 @@ public class PullToRefreshLayout extends FrameLayout {
         if (mPullToRefreshAttacher != null) {
             mPullToRefreshAttacher.destroy();
         }
+        if (mTouchRouter != null && mExternalContent == null) {
+            mTouchRouter.remove(this);
+            mTouchRouter = null;
+        }
         super.onDetachedFromWindow();
     }
 
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onVisibilityChanged();
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onVisibilityChanged();
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onVisibilityChanged();
+        }
+    }
+
     @Override
     protected void onConfigurationChanged(Configuration newConfig) {
         if (mPullToRefreshAttacher != null) {
@@ -162,25 +312,185 @@ public class PullToRefreshLayout extends FrameLayout {
         super.onConfigurationChanged(newConfig);
     }
 
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.refreshElapsedTime = mPullToRefreshAttacher != null
+                ? mPullToRefreshAttacher.getRefreshElapsedTime()
+                : -1;
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+
+        if (ss.refreshElapsedTime >= 0) {
+            if (mPullToRefreshAttacher != null) {
+                mPullToRefreshAttacher.restoreRefreshingState(ss.refreshElapsedTime);
+            } else {
+                mPendingRestoredElapsedTime = ss.refreshElapsedTime;
+            }
+        }
+    }
+
     void setPullToRefreshAttacher(PullToRefreshAttacher attacher) {
         if (mPullToRefreshAttacher != null) {
             mPullToRefreshAttacher.destroy();
         }
+        detachFromExternalContent();
+        if (mTouchRouter != null) {
+            mTouchRouter.remove(this);
+            mTouchRouter = null;
+        }
         mPullToRefreshAttacher = attacher;
+        if (attacher != null) {
+            attacher.setTouchRecorder(mTouchRecorder);
+        }
+
+        // If we were restored before being setup, apply the refreshing state now
+        if (attacher != null && mPendingRestoredElapsedTime >= 0) {
+            attacher.restoreRefreshingState(mPendingRestoredElapsedTime);
+            mPendingRestoredElapsedTime = -1;
+        }
+    }
+
+    /**
+     * Add {@code views} as children without requesting a layout for each one. The caller is
+     * responsible for requesting a layout once they have all been added.
+     */
+    void addViewsInLayout(View[] views) {
+        for (int i = 0, z = views.length; i < z; i++) {
+            final View view = views[i];
+            addViewInLayout(view, -1, view.getLayoutParams(), true);
+        }
+    }
+
+    /**
+     * Detect pulls on the children of {@code content}, without this layout being added to the
+     * view hierarchy. Touch events are intercepted from {@code activity}'s Window instead.
+     * <p/>
+     * As we never receive the View callbacks ourselves, configuration and visibility changes are
+     * picked up from {@code content}'s layout passes and the Window's focus changes, and we are
+     * destroyed once {@code content} is no longer attached to the Window.
+     */
+    void attachToExternalContent(Activity activity, ViewGroup content) {
+        mExternalContent = content;
+        mExternalContentConfiguration = new Configuration(
+                content.getResources().getConfiguration());
+        mExternalContentShown = content.isShown();
+        content.getViewTreeObserver().addOnGlobalLayoutListener(mExternalContentLayoutListener);
+        routeTouchesFromWindow(activity);
+    }
+
+    /**
+     * Called by our {@link WindowTouchInterceptor} when the Window's focus changes, in place of
+     * {@link #onWindowFocusChanged(boolean)}.
+     */
+    void onExternalWindowFocusChanged() {
+        if (mExternalContent != null && mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.onVisibilityChanged();
+        }
+    }
+
+    /**
+     * @return false if we are attached to external content which has since been detached from
+     *         the Window, in which case we have been destroyed.
+     */
+    boolean checkExternalContentAttached() {
+        if (mExternalContent == null || mExternalContent.getWindowToken() != null) {
+            return true;
+        }
+        detachFromExternalContent();
+        return false;
+    }
+
+    /**
+     * The equivalent of {@link #onDetachedFromWindow()} when we are attached to external content.
+     */
+    private void detachFromExternalContent() {
+        final ViewGroup content = mExternalContent;
+        if (content == null) return;
+
+        // Fetch the observer again, as it is replaced when the content is attached to a window
+        final ViewTreeObserver observer = content.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeGlobalOnLayoutListener(mExternalContentLayoutListener);
+        }
+        if (mPullToRefreshAttacher != null) {
+            mPullToRefreshAttacher.destroy();
+        }
+        if (mTouchRouter != null) {
+            mTouchRouter.remove(this);
+            mTouchRouter = null;
+        }
+        mExternalContent = null;
+        mExternalContentConfiguration = null;
+    }
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mExternalContentLayoutListener
+            = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            final ViewGroup content = mExternalContent;
+            if (content == null || mPullToRefreshAttacher == null) return;
+
+            // A configuration change handled by the Activity results in a layout pass
+            final Configuration configuration = content.getResources().getConfiguration();
+            if (mExternalContentConfiguration.diff(configuration) != 0) {
+                mExternalContentConfiguration.setTo(configuration);
+                mPullToRefreshAttacher.onConfigurationChanged(configuration);
+            }
+
+            final boolean shown = content.isShown();
+            if (shown != mExternalContentShown) {
+                mExternalContentShown = shown;
+                mPullToRefreshAttacher.onVisibilityChanged();
+            }
+        }
+    };
+
+    /**
+     * Receive touch events from the Activity's shared {@link WindowTouchInterceptor}, rather than
+     * intercepting them in this layout.
+     */
+    void routeTouchesFromWindow(Activity activity) {
+        ensureAttacher();
+        mTouchRouter = WindowTouchInterceptor.get(activity);
+        mTouchRouter.add(this);
+    }
+
+    PullToRefreshAttacher getPullToRefreshAttacher() {
+        return mPullToRefreshAttacher;
+    }
+
+    /**
+     * @return The ViewGroup which contains the refreshable views.
+     */
+    private ViewGroup getContent() {
+        return mExternalContent != null ? mExternalContent : this;
     }
 
     void addAllChildrenAsPullable() {
         ensureAttacher();
-        for (int i = 0, z = getChildCount(); i < z; i++) {
-            addRefreshableView(getChildAt(i));
+        final ViewGroup content = getContent();
+        for (int i = 0, z = content.getChildCount(); i < z; i++) {
+            addRefreshableView(content.getChildAt(i));
         }
     }
 
     void addChildrenAsPullable(int[] viewIds) {
+        final ViewGroup content = getContent();
         for (int i = 0, z = viewIds.length; i < z; i++) {
-            View view = findViewById(viewIds[i]);
+            View view = content.findViewById(viewIds[i]);
             if (view != null) {
-                addRefreshableView(findViewById(viewIds[i]));
+                addRefreshableView(view);
             }
         }
     }
@@ -229,6 +539,37 @@ public class PullToRefreshLayout extends FrameLayout {
         }
     }
 
+    static class SavedState extends BaseSavedState {
+        // The time since the refresh started, or -1 if we were not refreshing
+        long refreshElapsedTime;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            refreshElapsedTime = in.readLong();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeLong(refreshElapsedTime);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR
+                = new Parcelable.Creator<SavedState>() {
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
     static class LayoutParams extends FrameLayout.LayoutParams {
         private final String mViewDelegateClassName;
 
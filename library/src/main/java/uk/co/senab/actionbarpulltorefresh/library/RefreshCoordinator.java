@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
+
+/**
+ * Shares refreshes between a number of {@link PullToRefreshLayout}s which display the same data.
+ * Each layout is registered against a data key using
+ * {@link ActionBarPullToRefresh.SetupWizard#refreshCoordinator(RefreshCoordinator, Object)}.
+ * <p/>
+ * When a refresh is started on a key which already has a refresh in-flight, the layout simply
+ * joins the existing refresh and its {@link OnRefreshListener} is not called. When the refresh
+ * completes (from any of the layouts, or {@link #setRefreshComplete(Object)}), every layout
+ * waiting on the key is reset.
+ * <p/>
+ * Instances are not thread-safe and should only be used from the main thread. You would
+ * usually hold one instance per Activity.
+ */
+public final class RefreshCoordinator {
+
+    private final HashMap<Object, ArrayList<PullToRefreshAttacher>> mInFlight;
+
+    public RefreshCoordinator() {
+        mInFlight = new HashMap<Object, ArrayList<PullToRefreshAttacher>>();
+    }
+
+    /**
+     * @return true if there is currently a refresh in-flight for {@code key}.
+     */
+    public boolean isRefreshing(Object key) {
+        return mInFlight.containsKey(key);
+    }
+
+    /**
+     * Call this when the refresh for {@code key} is complete. Every layout which is waiting on
+     * the key will be reset (header view will be hidden).
+     */
+    public void setRefreshComplete(Object key) {
+        // Remove the key first, so that the attachers calling back into us are ignored
+        final ArrayList<PullToRefreshAttacher> waiting = mInFlight.remove(key);
+        if (waiting != null) {
+            for (int i = 0, z = waiting.size(); i < z; i++) {
+                waiting.get(i).setRefreshComplete();
+            }
+        }
+    }
+
+    /**
+     * Called by an attacher when it registers against {@code key}. If there is a refresh already
+     * in-flight for the key, the attacher is placed in the refreshing state so that it joins it.
+     */
+    void register(PullToRefreshAttacher attacher, Object key) {
+        if (isRefreshing(key)) {
+            attacher.setRefreshing(true);
+        }
+    }
+
+    /**
+     * Called by an attacher when it is destroyed. If it was the last attacher waiting on its key,
+     * the key is released so that later refreshes are not blocked by an orphaned operation.
+     */
+    void unregister(PullToRefreshAttacher attacher, Object key) {
+        final ArrayList<PullToRefreshAttacher> waiting = mInFlight.get(key);
+        if (waiting != null) {
+            waiting.remove(attacher);
+            if (waiting.isEmpty()) {
+                mInFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Called by an attacher when it has started refreshing.
+     *
+     * @param fromTouch Whether the refresh was started by the user. The attacher's
+     *                  {@link OnRefreshListener} is only called in this case, and only if there is
+     *                  not a refresh already in-flight for the key.
+     */
+    void onRefreshStarted(PullToRefreshAttacher attacher, Object key, View view,
+            boolean fromTouch) {
+        ArrayList<PullToRefreshAttacher> waiting = mInFlight.get(key);
+        if (waiting != null) {
+            // There's already a refresh in-flight, so just wait on it
+            if (!waiting.contains(attacher)) {
+                waiting.add(attacher);
+            }
+            return;
+        }
+
+        waiting = new ArrayList<PullToRefreshAttacher>();
+        waiting.add(attacher);
+        mInFlight.put(key, waiting);
+
+        if (fromTouch) {
+            attacher.dispatchRefreshStarted(view);
+        }
+    }
+
+    /**
+     * Called by an attacher when it has finished refreshing. The completion is fanned out to
+     * every other attacher waiting on the same key.
+     */
+    void onRefreshComplete(PullToRefreshAttacher attacher, Object key) {
+        final ArrayList<PullToRefreshAttacher> waiting = mInFlight.get(key);
+        if (waiting != null && waiting.contains(attacher)) {
+            setRefreshComplete(key);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import uk.co.senab.actionbarpulltorefresh.core.Clock;
+
+/**
+ * A handle on a running refresh which can outlive the {@link PullToRefreshLayout} which started
+ * it, for example across a configuration change. Retrieve it with
+ * {@link PullToRefreshLayout#getRefreshHandle()} when the refresh starts, keep it alongside your
+ * retained refresh operation, and call {@link #setRefreshComplete()} when that operation finishes.
+ * <p/>
+ * Once the Activity has been recreated, pass the handle to
+ * {@link PullToRefreshLayout#attachRefreshHandle(RefreshHandle)}. If the refresh is still running
+ * the new layout displays the refreshing header straight away, without calling the
+ * OnRefreshListener again.
+ */
+public final class RefreshHandle {
+
+    private final long mStartTime;
+    private final Clock mClock;
+    private boolean mIsRefreshing;
+    private PullToRefreshAttacher mAttacher;
+
+    /**
+     * @param clock The clock which {@code startTime} was taken from, which is the attacher's.
+     */
+    RefreshHandle(long startTime, Clock clock) {
+        mStartTime = startTime;
+        mClock = clock;
+        mIsRefreshing = true;
+    }
+
+    /**
+     * @return true if the refresh has not yet completed.
+     */
+    public boolean isRefreshing() {
+        return mIsRefreshing;
+    }
+
+    /**
+     * @return The time (in ms) since the refresh started.
+     */
+    public long getElapsedTime() {
+        return mClock.uptimeMillis() - mStartTime;
+    }
+
+    /**
+     * Call this when your refresh is complete. The layout currently attached to this handle (if
+     * any) will reset itself.
+     */
+    public void setRefreshComplete() {
+        if (!mIsRefreshing) return;
+
+        mIsRefreshing = false;
+        if (mAttacher != null) {
+            final PullToRefreshAttacher attacher = mAttacher;
+            mAttacher = null;
+            attacher.setRefreshComplete();
+        }
+    }
+
+    long getStartTime() {
+        return mStartTime;
+    }
+
+    void attach(PullToRefreshAttacher attacher) {
+        mAttacher = attacher;
+    }
+
+    void detach(PullToRefreshAttacher attacher) {
+        if (mAttacher == attacher) {
+            mAttacher = null;
+        }
+    }
+
+    /**
+     * Called when the attached layout has stopped refreshing by itself.
+     */
+    void onRefreshComplete(PullToRefreshAttacher attacher) {
+        if (mAttacher == attacher) {
+            mAttacher = null;
+            mIsRefreshing = false;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import uk.co.senab.actionbarpulltorefresh.core.LatencyHistogram;
+import uk.co.senab.actionbarpulltorefresh.core.LatencyTracker;
+
+/**
+ * Collects latency metrics for the pulls and refreshes of the layouts it is set on, via
+ * {@link Options.Builder#refreshMetrics(RefreshMetrics)}. You would usually hold one instance
+ * per screen, and read it (or report it) when the screen is left.
+ * <p/>
+ * Each interval is recorded into a {@link LatencyHistogram}, so collecting metrics never
+ * allocates. Each layout tracks its own gestures and refreshes, so overlapping refreshes on
+ * different layouts are timed separately, and only the histograms are shared. Instances are not
+ * thread-safe and should only be used from the main thread.
+ */
+public final class RefreshMetrics {
+
+    private final LatencyHistogram mTimeToPullStarted = new LatencyHistogram();
+    private final LatencyHistogram mTimeToFeedback = new LatencyHistogram();
+    private final LatencyHistogram mTimeToThreshold = new LatencyHistogram();
+    private final LatencyHistogram mTimeToRefreshStarted = new LatencyHistogram();
+    private final LatencyHistogram mTimeToRefreshFeedback = new LatencyHistogram();
+    private final LatencyHistogram mRefreshDuration = new LatencyHistogram();
+
+    /**
+     * @return The time from ACTION_DOWN until the pull is detected, which is when the touch
+     *         slop has been crossed.
+     */
+    public LatencyHistogram getTimeToPullStarted() {
+        return mTimeToPullStarted;
+    }
+
+    /**
+     * @return The time from ACTION_DOWN until the frame which first displays the header.
+     */
+    public LatencyHistogram getTimeToFeedback() {
+        return mTimeToFeedback;
+    }
+
+    /**
+     * @return The time from the pull being detected until it reaches the refresh threshold.
+     */
+    public LatencyHistogram getTimeToThreshold() {
+        return mTimeToThreshold;
+    }
+
+    /**
+     * @return The time from the refresh threshold being reached until
+     *         {@link uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener#onRefreshStarted(android.view.View)}
+     *         is called. This includes waiting for the user to release (if refreshing on up),
+     *         and any deferral or scheduling of the call.
+     */
+    public LatencyHistogram getTimeToRefreshStarted() {
+        return mTimeToRefreshStarted;
+    }
+
+    /**
+     * @return The time from the refresh starting until the frame which first displays the
+     *         refreshing header. When the OnRefreshListener is called synchronously this includes
+     *         the time spent in it, so compare this with
+     *         {@link Options.Builder#deferRefreshStarted(boolean)} on and off.
+     */
+    public LatencyHistogram getTimeToRefreshFeedback() {
+        return mTimeToRefreshFeedback;
+    }
+
+    /**
+     * @return The time from the OnRefreshListener being called until the refresh is complete.
+     *         For refreshes which were not started by the user, this is from the call to
+     *         {@link PullToRefreshLayout#setRefreshing(boolean)}.
+     */
+    public LatencyHistogram getRefreshDuration() {
+        return mRefreshDuration;
+    }
+
+    /**
+     * Discard every value recorded.
+     */
+    public void reset() {
+        mTimeToPullStarted.reset();
+        mTimeToFeedback.reset();
+        mTimeToThreshold.reset();
+        mTimeToRefreshStarted.reset();
+        mTimeToRefreshFeedback.reset();
+        mRefreshDuration.reset();
+    }
+
+    /**
+     * @return A new tracker for a single attacher's gestures and refreshes, which records into
+     *         these histograms.
+     */
+    LatencyTracker newTracker() {
+        return new LatencyTracker(mTimeToPullStarted, mTimeToFeedback, mTimeToThreshold,
+                mTimeToRefreshStarted, mTimeToRefreshFeedback, mRefreshDuration);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.view.View;
+
+import java.util.ArrayList;
+
+import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
+
+/**
+ * Limits the number of refreshes which can be running at once. Set it on an attacher via
+ * {@link Options.Builder#refreshScheduler(RefreshScheduler)}.
+ * <p/>
+ * When a refresh is started, the header is displayed straight away but the call to
+ * {@link OnRefreshListener#onRefreshStarted(View)} is queued until a slot is free. A slot is
+ * released when the refresh completes. Queued refreshes from layouts which are in the foreground
+ * (header visible and window focused) are dispatched before those in the background, and
+ * refreshes from layouts which are not on screen at all are deferred until they are. If your
+ * layouts are moved on and off screen by a parent, such as a ViewPager, call
+ * {@link #onVisibilityChanged(PullToRefreshLayout)} when that happens.
+ * <p/>
+ * Instances are not thread-safe and should only be used from the main thread.
+ */
+public final class RefreshScheduler {
+
+    private static final int DEFAULT_MAX_CONCURRENT_REFRESHES = 2;
+
+    private static RefreshScheduler sInstance;
+
+    /**
+     * @return The process-wide scheduler instance, which allows
+     *         {@value #DEFAULT_MAX_CONCURRENT_REFRESHES} concurrent refreshes by default.
+     */
+    public static RefreshScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new RefreshScheduler(DEFAULT_MAX_CONCURRENT_REFRESHES);
+        }
+        return sInstance;
+    }
+
+    private int mMaxConcurrentRefreshes;
+    private final ArrayList<PullToRefreshAttacher> mRunning;
+    private final ArrayList<PullToRefreshAttacher> mPending;
+    private final ArrayList<View> mPendingViews;
+
+    public RefreshScheduler(int maxConcurrentRefreshes) {
+        if (maxConcurrentRefreshes < 1) {
+            throw new IllegalArgumentException("maxConcurrentRefreshes must be at least 1");
+        }
+        mMaxConcurrentRefreshes = maxConcurrentRefreshes;
+        mRunning = new ArrayList<PullToRefreshAttacher>();
+        mPending = new ArrayList<PullToRefreshAttacher>();
+        mPendingViews = new ArrayList<View>();
+    }
+
+    /**
+     * Set the number of refreshes which may be running at once. Raising the limit will
+     * immediately dispatch any queued refreshes which now fit.
+     */
+    public void setMaxConcurrentRefreshes(int maxConcurrentRefreshes) {
+        if (maxConcurrentRefreshes < 1) {
+            throw new IllegalArgumentException("maxConcurrentRefreshes must be at least 1");
+        }
+        mMaxConcurrentRefreshes = maxConcurrentRefreshes;
+        schedule();
+    }
+
+    public int getMaxConcurrentRefreshes() {
+        return mMaxConcurrentRefreshes;
+    }
+
+    /**
+     * @return The number of refreshes which have been dispatched and have not yet completed.
+     */
+    public int getRunningCount() {
+        return mRunning.size();
+    }
+
+    /**
+     * @return The number of refreshes which are waiting for a free slot, or to become visible.
+     */
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Re-evaluate the priority of {@code layout}'s queued refresh. The layout notices changes to
+     * its own visibility and window focus, but not being scrolled on or off screen by a parent,
+     * so call this when that happens. For example from
+     * {@code ViewPager.OnPageChangeListener.onPageSelected()}.
+     */
+    public void onVisibilityChanged(PullToRefreshLayout layout) {
+        final PullToRefreshAttacher attacher = layout.getPullToRefreshAttacher();
+        if (attacher != null && mPending.contains(attacher)) {
+            schedule();
+        }
+    }
+
+    /**
+     * Queue the listener dispatch for {@code attacher}, dispatching it now if possible.
+     */
+    void enqueue(PullToRefreshAttacher attacher, View view) {
+        if (mRunning.contains(attacher) || mPending.contains(attacher)) {
+            return;
+        }
+        mPending.add(attacher);
+        mPendingViews.add(view);
+        schedule();
+    }
+
+    /**
+     * Called when {@code attacher}'s refresh has completed, or it has been destroyed. Frees its
+     * slot (or removes it from the queue) and dispatches the next refresh.
+     */
+    void remove(PullToRefreshAttacher attacher) {
+        if (!mRunning.remove(attacher)) {
+            final int index = mPending.indexOf(attacher);
+            if (index == -1) {
+                return;
+            }
+            mPending.remove(index);
+            mPendingViews.remove(index);
+        }
+        schedule();
+    }
+
+    /**
+     * Dispatch as many queued refreshes as there are free slots, foreground refreshes first.
+     * This should be called whenever the visibility of a layout with a pending refresh changes.
+     */
+    void schedule() {
+        while (mRunning.size() < mMaxConcurrentRefreshes && !mPending.isEmpty()) {
+            int next = -1;
+            for (int i = 0, z = mPending.size(); i < z; i++) {
+                final int priority = mPending.get(i).getRefreshPriority();
+                if (priority == PullToRefreshAttacher.REFRESH_PRIORITY_FOREGROUND) {
+                    next = i;
+                    break;
+                } else if (priority == PullToRefreshAttacher.REFRESH_PRIORITY_BACKGROUND
+                        && next == -1) {
+                    next = i;
+                }
+            }
+
+            if (next == -1) {
+                // Everything left is off-screen, so wait until something becomes visible
+                return;
+            }
+
+            final PullToRefreshAttacher attacher = mPending.remove(next);
+            final View view = mPendingViews.remove(next);
+            mRunning.add(attacher);
+            attacher.dispatchScheduledRefresh(view);
+        }
+    }
+}
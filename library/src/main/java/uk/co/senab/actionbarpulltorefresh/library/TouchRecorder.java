@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.view.MotionEvent;
+
+import uk.co.senab.actionbarpulltorefresh.core.TouchRecording;
+
+/**
+ * Records the touch events handled by a {@link PullToRefreshLayout}, so that real gestures can
+ * be captured once and then replayed with {@link TouchReplayer}. Events are recorded where the
+ * layout's attacher receives them, so this works however the layout receives its touch events,
+ * including from the touch router and with {@code attachTo()}. Set it on a layout with
+ * {@link PullToRefreshLayout#setTouchRecorder(TouchRecorder)}, then save the result of
+ * {@link #getRecording()} with {@link TouchRecording#writeTo(java.io.OutputStream)}.
+ * <p/>
+ * Only the first pointer is recorded, as that is the only one the library uses.
+ */
+public final class TouchRecorder {
+
+    private TouchRecording mRecording = new TouchRecording();
+
+    /**
+     * @return The events recorded so far.
+     */
+    public TouchRecording getRecording() {
+        return mRecording;
+    }
+
+    /**
+     * Discard the events recorded so far.
+     */
+    public void clear() {
+        mRecording = new TouchRecording();
+    }
+
+    void record(int dispatch, MotionEvent event) {
+        final TouchRecording recording = mRecording;
+        recording.addEvent(dispatch, event.getAction(), event.getEventTime(), event.getRawX(),
+                event.getRawY(), event.getX(), event.getY());
+
+        for (int h = 0, z = event.getHistorySize(); h < z; h++) {
+            recording.addHistorical(event.getHistoricalEventTime(h), event.getHistoricalX(h),
+                    event.getHistoricalY(h));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.view.MotionEvent;
+
+import uk.co.senab.actionbarpulltorefresh.core.RecordingCursor;
+import uk.co.senab.actionbarpulltorefresh.core.TouchRecording;
+import uk.co.senab.actionbarpulltorefresh.core.VirtualClock;
+
+/**
+ * Replays a {@link TouchRecording} into a {@link PullToRefreshLayout}, calling its
+ * {@link PullToRefreshAttacher}'s onInterceptTouchEvent() and onTouchEvent() exactly as they were
+ * called when the gesture was recorded. This works however the layout receives its touch events,
+ * including from the touch router and with {@code attachTo()}.
+ * <p/>
+ * For the replay to be repeatable, the layout should be setup with
+ * {@link Options.Builder#clock(uk.co.senab.actionbarpulltorefresh.core.Clock)} set to the same
+ * {@link VirtualClock} which is given here. The clock is moved to each event's time before it is
+ * dispatched. Anything scheduled on the main thread (such as the header minimization) still
+ * runs in real time.
+ */
+public final class TouchReplayer {
+
+    private TouchReplayer() {}
+
+    /**
+     * Replay {@code recording} into {@code layout}. This must be called from the main thread.
+     *
+     * @param clock The clock which {@code layout} was setup with, or null if the layout uses
+     *              the system clock.
+     * @param timeOffset Added to every recorded time, so that the recording can be replayed
+     *                   relative to the current time.
+     */
+    public static void replay(TouchRecording recording, PullToRefreshLayout layout,
+            VirtualClock clock, long timeOffset) {
+        final PullToRefreshAttacher attacher = layout.getPullToRefreshAttacher();
+        if (attacher == null) {
+            throw new IllegalStateException("You need to setup the PullToRefreshLayout before "
+                    + "replaying into it");
+        }
+
+        final RecordingCursor cursor = new RecordingCursor(recording, timeOffset);
+        while (cursor.moveToNext()) {
+            if (clock != null) {
+                clock.setTime(cursor.getEventTime());
+            }
+
+            final MotionEvent event = obtainEvent(cursor);
+            try {
+                if (cursor.getDispatch() == TouchRecording.DISPATCH_INTERCEPT) {
+                    attacher.onInterceptTouchEvent(event);
+                } else {
+                    attacher.onTouchEvent(event);
+                }
+            } finally {
+                event.recycle();
+            }
+        }
+    }
+
+    /**
+     * Create the MotionEvent for the current event of {@code cursor}. The event is built in raw
+     * coordinates, with the historical samples batched in, and then offset to the recorded local
+     * coordinates.
+     */
+    private static MotionEvent obtainEvent(RecordingCursor cursor) {
+        final MotionEvent event = MotionEvent.obtain(cursor.getDownTime(),
+                cursor.getSampleTime(0), cursor.getAction(), cursor.getSampleRawX(0),
+                cursor.getSampleRawY(0), 0);
+        for (int s = 1, z = cursor.getSampleCount(); s < z; s++) {
+            event.addBatch(cursor.getSampleTime(s), cursor.getSampleRawX(s),
+                    cursor.getSampleRawY(s), 1f, 1f, 0);
+        }
+
+        // Offsetting the location moves the local coordinates, but leaves the raw ones alone
+        event.offsetLocation(-cursor.getOffsetX(), -cursor.getOffsetY());
+        return event;
+    }
+}
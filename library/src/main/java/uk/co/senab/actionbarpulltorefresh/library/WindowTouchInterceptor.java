@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.Window;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+
+/**
+ * Routes an Activity's touch events to the {@link PullToRefreshAttacher}s of a number of
+ * {@link PullToRefreshLayout}s by wrapping its {@link Window.Callback}. There is one instance per
+ * Window, shared by every layout registered with it.
+ * <p/>
+ * On ACTION_DOWN, the refreshable view under the touch is resolved once across all of the
+ * registered layouts, and the gesture is then only given to the attacher which owns it. Layouts
+ * which are not involved in the gesture do no work. Events are intercepted the same way a
+ * ViewGroup would: once the attacher starts a pull, the views underneath receive ACTION_CANCEL
+ * and the rest of the gesture goes to the attacher.
+ * <p/>
+ * The callback is wrapped with a dynamic proxy rather than a concrete class, so that methods
+ * added to {@link Window.Callback} in later platform versions (such as the API v23
+ * {@code onWindowStartingActionMode(ActionMode.Callback, int)}) are still passed through. Only
+ * dispatchTouchEvent(), onWindowFocusChanged() and onDetachedFromWindow() are handled here; they
+ * are matched by name, and everything else is invoked on the wrapped callback.
+ */
+class WindowTouchInterceptor implements InvocationHandler {
+
+    private static final String DISPATCH_TOUCH_EVENT = "dispatchTouchEvent";
+    private static final String ON_WINDOW_FOCUS_CHANGED = "onWindowFocusChanged";
+    private static final String ON_DETACHED_FROM_WINDOW = "onDetachedFromWindow";
+
+    /**
+     * @return The interceptor installed on {@code activity}'s Window, installing one if needed.
+     */
+    static WindowTouchInterceptor get(Activity activity) {
+        final Window window = activity.getWindow();
+        final Window.Callback callback = window.getCallback();
+
+        // Only unwrap proxies which we installed, not those of other libraries
+        if (callback != null && Proxy.isProxyClass(callback.getClass())) {
+            final InvocationHandler handler = Proxy.getInvocationHandler(callback);
+            if (handler instanceof WindowTouchInterceptor) {
+                return (WindowTouchInterceptor) handler;
+            }
+        }
+
+        final WindowTouchInterceptor interceptor = new WindowTouchInterceptor(window, callback);
+        interceptor.mProxy = (Window.Callback) Proxy.newProxyInstance(
+                Window.Callback.class.getClassLoader(), new Class<?>[]{Window.Callback.class},
+                interceptor);
+        window.setCallback(interceptor.mProxy);
+        return interceptor;
+    }
+
+    private final Window mWindow;
+    private final Window.Callback mWrapped;
+    private Window.Callback mProxy;
+
+    private final ArrayList<PullToRefreshLayout> mLayouts;
+
+    // The attacher which owns the current gesture, if any
+    private PullToRefreshAttacher mTarget;
+    private boolean mIsIntercepting;
+
+    private WindowTouchInterceptor(Window window, Window.Callback wrapped) {
+        mWindow = window;
+        mWrapped = wrapped;
+        mLayouts = new ArrayList<PullToRefreshLayout>();
+    }
+
+    void add(PullToRefreshLayout layout) {
+        if (!mLayouts.contains(layout)) {
+            mLayouts.add(layout);
+        }
+    }
+
+    /**
+     * Stop routing to {@code layout}. Once no layouts are left, the original callback is restored
+     * if nothing has wrapped it since.
+     */
+    void remove(PullToRefreshLayout layout) {
+        mLayouts.remove(layout);
+        if (mTarget != null && mTarget == layout.getPullToRefreshAttacher()) {
+            mTarget = null;
+            mIsIntercepting = false;
+        }
+        if (mLayouts.isEmpty() && mWindow.getCallback() == mProxy) {
+            mWindow.setCallback(mWrapped);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        final String name = method.getName();
+        if (args != null && args.length == 1) {
+            if (args[0] instanceof MotionEvent && DISPATCH_TOUCH_EVENT.equals(name)) {
+                return dispatchTouchEvent((MotionEvent) args[0]);
+            }
+            if (args[0] instanceof Boolean && ON_WINDOW_FOCUS_CHANGED.equals(name)) {
+                onWindowFocusChanged();
+            }
+        } else if (args == null || args.length == 0) {
+            if (ON_DETACHED_FROM_WINDOW.equals(name)) {
+                onDetachedFromWindow();
+            }
+        }
+
+        try {
+            return method.invoke(mWrapped, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void onDetachedFromWindow() {
+        // The window has gone, so any layouts which are not in it need destroying too
+        for (int i = mLayouts.size() - 1; i >= 0; i--) {
+            final PullToRefreshLayout layout = mLayouts.get(i);
+            final PullToRefreshAttacher attacher = layout.getPullToRefreshAttacher();
+            if (attacher != null) {
+                attacher.destroy();
+            }
+            remove(layout);
+        }
+    }
+
+    private void onWindowFocusChanged() {
+        for (int i = mLayouts.size() - 1; i >= 0; i--) {
+            final PullToRefreshLayout layout = mLayouts.get(i);
+            if (layout.checkExternalContentAttached()) {
+                layout.onExternalWindowFocusChanged();
+            }
+        }
+    }
+
+    private boolean dispatchTouchEvent(MotionEvent event) {
+        final int action = event.getAction() & MotionEvent.ACTION_MASK;
+
+        if (action == MotionEvent.ACTION_DOWN) {
+            mIsIntercepting = false;
+            mTarget = findTarget(event);
+        }
+
+        final PullToRefreshAttacher attacher = mTarget;
+        if (attacher == null || attacher.isDestroyed()) {
+            mTarget = null;
+            mIsIntercepting = false;
+            return mWrapped.dispatchTouchEvent(event);
+        }
+
+        if (mIsIntercepting) {
+            // We own the rest of this gesture
+            attacher.onTouchEvent(event);
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                mIsIntercepting = false;
+                mTarget = null;
+            }
+            return true;
+        }
+
+        if (attacher.onInterceptTouchEvent(event)) {
+            mIsIntercepting = true;
+
+            // Cancel the gesture for the views underneath
+            final MotionEvent cancel = MotionEvent.obtain(event);
+            cancel.setAction(MotionEvent.ACTION_CANCEL);
+            mWrapped.dispatchTouchEvent(cancel);
+            cancel.recycle();
+            return true;
+        }
+
+        final boolean handled = mWrapped.dispatchTouchEvent(event);
+        if (!handled && action == MotionEvent.ACTION_DOWN) {
+            // Nothing underneath wants this gesture, so handle it ourselves
+            mIsIntercepting = true;
+            attacher.onTouchEvent(event);
+            return true;
+        }
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mTarget = null;
+        }
+        return handled;
+    }
+
+    /**
+     * @return The attacher which owns the refreshable view under {@code event}. If refreshable
+     *         views from more than one layout are under it, the most deeply nested one wins.
+     */
+    private PullToRefreshAttacher findTarget(MotionEvent event) {
+        final float rawX = event.getRawX(), rawY = event.getRawY();
+
+        PullToRefreshAttacher target = null;
+        int targetDepth = -1;
+
+        for (int i = mLayouts.size() - 1; i >= 0; i--) {
+            final PullToRefreshLayout layout = mLayouts.get(i);
+            final PullToRefreshAttacher attacher = layout.getPullToRefreshAttacher();
+            if (attacher == null || attacher.isDestroyed()) {
+                remove(layout);
+                continue;
+            }
+            if (!layout.checkExternalContentAttached()) {
+                // The layout has been destroyed and removed itself
+                continue;
+            }
+            if (!layout.isEnabled() || attacher.isNestedScrollEnabled()) {
+                continue;
+            }
+
+            final View view = attacher.findRefreshableViewAt(rawX, rawY);
+            if (view != null) {
+                final int depth = getDepth(view);
+                if (depth > targetDepth) {
+                    target = attacher;
+                    targetDepth = depth;
+                }
+            }
+        }
+        return target;
+    }
+
+    private static int getDepth(View view) {
+        int depth = 0;
+        for (ViewParent parent = view.getParent(); parent != null; parent = parent.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@link uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate} or
+ * {@link uk.co.senab.actionbarpulltorefresh.library.HeaderTransformer} which may be instantiated
+ * by class name, for instance from the {@code ptrViewDelegateClass} layout attribute.
+ * <p/>
+ * When the {@code processor} artifact is on the annotation processor path, a
+ * {@code GeneratedComponentRegistry} is generated which can create every annotated class without
+ * reflection. The class must be public, and have a public no-argument constructor.
+ * <p/>
+ * The registry is generated into the longest package which contains every annotated class, or
+ * the package given with the {@code -Aptr.registryPackage=<package>} compiler option. Set the
+ * option if more than one module in your app uses the processor. The library's own
+ * components are always created without reflection, so they do not need to be annotated.
+ *
+ * @see uk.co.senab.actionbarpulltorefresh.library.ComponentRegistry
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface PullToRefreshComponent {
+}
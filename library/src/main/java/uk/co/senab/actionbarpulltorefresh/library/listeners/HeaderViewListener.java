@@ -42,7 +42,7 @@ public interface HeaderViewListener {
      * Called when the visibility state of the Header View has changed.
      *
      * @param headerView
-     *            HeaderView who's state has changed.
+     *            HeaderView who's state has changed, or null when running headless.
      * @param state
      *            The new state. One of {@link #STATE_VISIBLE},
      *            {@link #STATE_MINIMIZED} and {@link #STATE_HIDDEN}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library.listeners;
+
+/**
+ * Receives frame statistics for pulls and header animations, via
+ * {@link uk.co.senab.actionbarpulltorefresh.library.Options.Builder#frameStatsListener(OnFrameStatsListener)}.
+ * Use it to find out whether the header, its progress bar or your own listeners are causing
+ * jank during a refresh. Frame statistics are only available on API v16+.
+ */
+public interface OnFrameStatsListener {
+
+    /* The episodes which are tracked */
+    public static final int EPISODE_PULL = 0;
+    public static final int EPISODE_SHOW_HEADER = 1;
+    public static final int EPISODE_HIDE_HEADER = 2;
+    public static final int EPISODE_MINIMIZE_HEADER = 3;
+
+    /**
+     * Called when an episode has finished. A pull finishes when the user releases, and an
+     * animation finishes once the animation duration has passed.
+     *
+     * @param episode One of the {@code EPISODE_} constants.
+     * @param frameCount The number of frames drawn during the episode.
+     * @param droppedFrames The number of frames which were missed, as the previous frame took
+     *                      longer than the display's refresh interval.
+     * @param worstFrameTimeNanos The longest time between two frames, in nanoseconds.
+     */
+    public void onFrameStats(int episode, int frameCount, int droppedFrames,
+            long worstFrameTimeNanos);
+}
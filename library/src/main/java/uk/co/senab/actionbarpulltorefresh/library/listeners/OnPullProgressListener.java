@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library.listeners;
+
+/**
+ * Receives the pull state when running headless, via
+ * {@link uk.co.senab.actionbarpulltorefresh.library.Options.Builder#headless(OnPullProgressListener)}.
+ * Use it to drive your own refresh indicator within the content.
+ */
+public interface OnPullProgressListener {
+
+    /**
+     * Called as the user pulls on the refreshable view.
+     *
+     * @param fraction Value between 0.0f and 1.0f depending on how far the user has pulled.
+     */
+    public void onPulled(float fraction);
+
+    /**
+     * Called when the user has pulled far enough that a refresh will start when they release.
+     * This is only called when refreshOnUp is enabled.
+     */
+    public void onReleaseToRefresh();
+
+    /**
+     * Called when a refresh has started, from the user pulling or from setRefreshing().
+     */
+    public void onRefreshStarted();
+
+    /**
+     * Called when the pull has been abandoned, or the refresh has completed, and the indicator
+     * should be hidden.
+     */
+    public void onReset();
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.listeners;
+
+import android.view.View;
+
+import uk.co.senab.actionbarpulltorefresh.library.CancelToken;
+
+/**
+ * Listener which can start a refresh speculatively, before the user has pulled far enough to
+ * initiate it. This is only used when speculative refreshes are enabled via
+ * {@link uk.co.senab.actionbarpulltorefresh.library.Options.Builder#speculativeRefresh(float)}.
+ */
+public interface OnRefreshPrepareListener extends OnRefreshListener {
+    /**
+     * Called when the user has pulled part of the way, and is pulling fast enough that the pull
+     * is likely to initiate a refresh. You can start fetching data here.
+     * <p/>
+     * If the pull does initiate a refresh, {@link #onRefreshStarted(View)} is called as normal
+     * and the token is committed. Otherwise the token is cancelled and any work started here
+     * should be abandoned.
+     *
+     * @param view
+     *            - View which the user is pulling.
+     * @param token
+     *            - Token which is cancelled if the pull does not initiate a refresh.
+     */
+    public void onRefreshPrepare(View view, CancelToken token);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.library.listeners;
+
+/**
+ * Receives listener callbacks which took longer than their budget, via
+ * {@link uk.co.senab.actionbarpulltorefresh.library.Options.Builder#listenerWatchdog(long, OnSlowCallbackListener)}.
+ * Listeners are called on the main thread, often during touch dispatch, so a slow callback
+ * usually means that it is doing I/O or other heavy work which should be moved off it.
+ */
+public interface OnSlowCallbackListener {
+
+    /**
+     * Called after a listener callback has returned, if it took longer than the budget.
+     *
+     * @param listenerClass The class of the listener which was called.
+     * @param callback The callback which was slow, i.e.
+     *                 {@code "OnRefreshListener.onRefreshStarted"}.
+     * @param durationMillis How long the callback took.
+     */
+    public void onSlowCallback(Class<?> listenerClass, String callback, long durationMillis);
+}
@@ -13,6 +13,14 @@ public class Compat {
         }
     }
 
+    public static boolean canScrollVertically(View view, int direction) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return CompatV14.canScrollVertically(view, direction);
+        } else {
+            return CompatBase.canScrollVertically(view, direction);
+        }
+    }
+
     public static void postOnAnimation(View view, Runnable runnable) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
             CompatV16.postOnAnimation(view, runnable);
@@ -23,4 +31,16 @@ public class Compat {
         }
     }
 
+    public static void beginTraceSection(String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            CompatV18.beginTraceSection(sectionName);
+        }
+    }
+
+    public static void endTraceSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            CompatV18.endTraceSection();
+        }
+    }
+
 }
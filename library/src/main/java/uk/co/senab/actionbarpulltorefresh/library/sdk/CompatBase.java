@@ -8,6 +8,13 @@ class CompatBase {
         // NO-OP
     }
 
+    static boolean canScrollVertically(View view, int direction) {
+        // We can't reach the View's scroll range here, so we can only tell whether the View has
+        // scrolled its own content down. Views which scroll by moving their children, and any
+        // scrolling down, are reported as not scrollable.
+        return direction < 0 && view.getScrollY() > 0;
+    }
+
     static void postOnAnimation(View view, Runnable runnable) {
         view.postDelayed(runnable, 10l);
     }
@@ -0,0 +1,11 @@
+package uk.co.senab.actionbarpulltorefresh.library.sdk;
+
+import android.view.View;
+
+class CompatV14 {
+
+    static boolean canScrollVertically(View view, int direction) {
+        return view.canScrollVertically(direction);
+    }
+
+}
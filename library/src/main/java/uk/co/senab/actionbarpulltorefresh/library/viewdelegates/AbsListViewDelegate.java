@@ -30,40 +30,48 @@ public class AbsListViewDelegate implements ViewDelegate {
 
     @Override
     public boolean isReadyForPull(View view, final float x, final float y) {
-        boolean ready = false;
-
-        // First we check whether we're scrolled to the top
         AbsListView absListView = (AbsListView) view;
+        return isScrolledToTop(absListView) && !isOnFastScroller(absListView, x);
+    }
+
+    /**
+     * @return true if {@code absListView} is empty or its first item is fully visible.
+     */
+    static boolean isScrolledToTop(AbsListView absListView) {
         if (absListView.getCount() == 0) {
-            ready = true;
+            return true;
         } else if (absListView.getFirstVisiblePosition() == 0) {
             final View firstVisibleChild = absListView.getChildAt(0);
-            ready = firstVisibleChild != null && firstVisibleChild.getTop() >= absListView.getPaddingTop();
+            return firstVisibleChild != null
+                    && firstVisibleChild.getTop() >= absListView.getPaddingTop();
         }
+        return false;
+    }
 
-        // Then we have to check whether the fas scroller is enabled, and check we're not starting
-        // the gesture from the scroller
-        if (ready && absListView.isFastScrollEnabled() && isFastScrollAlwaysVisible(absListView)) {
-            switch (getVerticalScrollbarPosition(absListView)) {
-                case View.SCROLLBAR_POSITION_RIGHT:
-                    ready = x < absListView.getRight() - absListView.getVerticalScrollbarWidth();
-                    break;
-                case View.SCROLLBAR_POSITION_LEFT:
-                    ready = x > absListView.getVerticalScrollbarWidth();
-                    break;
-            }
+    /**
+     * @return true if the fast scroller is always visible and {@code x} is within it, in which
+     *         case a gesture starting there should not be treated as a pull.
+     */
+    static boolean isOnFastScroller(AbsListView absListView, float x) {
+        if (!absListView.isFastScrollEnabled() || !isFastScrollAlwaysVisible(absListView)) {
+            return false;
         }
-
-        return ready;
+        switch (getVerticalScrollbarPosition(absListView)) {
+            case View.SCROLLBAR_POSITION_RIGHT:
+                return x >= absListView.getRight() - absListView.getVerticalScrollbarWidth();
+            case View.SCROLLBAR_POSITION_LEFT:
+                return x <= absListView.getVerticalScrollbarWidth();
+        }
+        return false;
     }
 
-    int getVerticalScrollbarPosition(AbsListView absListView) {
+    static int getVerticalScrollbarPosition(AbsListView absListView) {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ?
                 CompatV11.getVerticalScrollbarPosition(absListView) :
                 Compat.getVerticalScrollbarPosition(absListView);
     }
 
-    boolean isFastScrollAlwaysVisible(AbsListView absListView) {
+    static boolean isFastScrollAlwaysVisible(AbsListView absListView) {
         return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ?
                 CompatV11.isFastScrollAlwaysVisible(absListView) :
                 Compat.isFastScrollAlwaysVisible(absListView);
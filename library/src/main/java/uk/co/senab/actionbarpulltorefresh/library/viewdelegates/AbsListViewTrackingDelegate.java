@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.viewdelegates;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
+
+/**
+ * {@link TrackingViewDelegate} for {@link AbsListView}s. The scrolled to top state is updated
+ * from the View tree's scroll and layout callbacks. Those fire for every View in the window, so
+ * the list's first visible position, first child top, padding and item count are compared
+ * against their last values first, and anything else is ignored.
+ */
+public class AbsListViewTrackingDelegate extends TrackingViewDelegate
+        implements ViewTreeObserver.OnScrollChangedListener,
+        ViewTreeObserver.OnGlobalLayoutListener {
+
+    public static final Class[] SUPPORTED_VIEW_CLASSES =  { AbsListView.class };
+
+    private AbsListView mListView;
+
+    // The list's state when the scrolled to top state was last updated
+    private int mLastFirstPosition;
+    private int mLastFirstTop;
+    private int mLastPaddingTop;
+    private int mLastCount;
+
+    @Override
+    public boolean isReadyForPull(View view, float x, float y) {
+        // Check that we're not starting the gesture from the fast scroller
+        return isAtTop() && !AbsListViewDelegate.isOnFastScroller((AbsListView) view, x);
+    }
+
+    @Override
+    protected void onStartTracking(View view) {
+        mListView = (AbsListView) view;
+        final ViewTreeObserver observer = view.getViewTreeObserver();
+        observer.addOnScrollChangedListener(this);
+        observer.addOnGlobalLayoutListener(this);
+        update(true);
+    }
+
+    @Override
+    protected void onStopTracking(View view) {
+        // The observer fetched in onStartTracking() is replaced if the View has since been
+        // attached to a window, so fetch the current one
+        final ViewTreeObserver observer = view.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(this);
+            observer.removeGlobalOnLayoutListener(this);
+        }
+        mListView = null;
+    }
+
+    @Override
+    public void onScrollChanged() {
+        update(false);
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        // Layout passes cover adapter changes, which do not necessarily scroll the list
+        update(false);
+    }
+
+    private void update(boolean force) {
+        final AbsListView list = mListView;
+        if (list == null) {
+            return;
+        }
+
+        final int firstPosition = list.getFirstVisiblePosition();
+        final View firstChild = list.getChildAt(0);
+        final int firstTop = firstChild != null ? firstChild.getTop() : Integer.MIN_VALUE;
+        final int paddingTop = list.getPaddingTop();
+        final int count = list.getCount();
+
+        if (!force && firstPosition == mLastFirstPosition && firstTop == mLastFirstTop
+                && paddingTop == mLastPaddingTop && count == mLastCount) {
+            // Something else in the window scrolled or was laid out
+            return;
+        }
+        mLastFirstPosition = firstPosition;
+        mLastFirstTop = firstTop;
+        mLastPaddingTop = paddingTop;
+        mLastCount = count;
+
+        // The same test as AbsListViewDelegate.isScrolledToTop(), from the values read above
+        setAtTop(count == 0
+                || (firstPosition == 0 && firstChild != null && firstTop >= paddingTop));
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.viewdelegates;
+
+import android.view.View;
+
+import uk.co.senab.actionbarpulltorefresh.library.sdk.Compat;
+
+/**
+ * Generic {@link ViewDelegate} which works with any scrolling View, by checking whether it can
+ * scroll up using {@link View#canScrollVertically(int)}. On devices before Ice Cream Sandwich
+ * this falls back to checking the View's scroll Y, so Views which scroll by moving their children
+ * are always treated as scrolled to the top there. Give those Views their own delegate if you
+ * support those devices.
+ * <p/>
+ * This is used for any View which does not have a more specific delegate.
+ */
+public class CanScrollVerticallyDelegate implements ViewDelegate {
+
+    @Override
+    public boolean isReadyForPull(View view, float x, float y) {
+        return !Compat.canScrollVertically(view, -1);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.viewdelegates;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.webkit.WebView;
+import android.widget.ScrollView;
+
+/**
+ * {@link TrackingViewDelegate} for Views which scroll their own content, such as
+ * {@link ScrollView} and {@link WebView}. The scrolled to top state is updated whenever the View
+ * scrolls.
+ */
+public class ScrollYTrackingDelegate extends TrackingViewDelegate
+        implements ViewTreeObserver.OnScrollChangedListener {
+
+    public static final Class[] SUPPORTED_VIEW_CLASSES =  { ScrollView.class, WebView.class };
+
+    private View mView;
+
+    @Override
+    protected void onStartTracking(View view) {
+        mView = view;
+        view.getViewTreeObserver().addOnScrollChangedListener(this);
+        setAtTop(view.getScrollY() <= 0);
+    }
+
+    @Override
+    protected void onStopTracking(View view) {
+        // The observer fetched in onStartTracking() is replaced if the View has since been
+        // attached to a window, so fetch the current one
+        final ViewTreeObserver observer = view.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnScrollChangedListener(this);
+        }
+        mView = null;
+    }
+
+    @Override
+    public void onScrollChanged() {
+        if (mView != null) {
+            setAtTop(mView.getScrollY() <= 0);
+        }
+    }
+}
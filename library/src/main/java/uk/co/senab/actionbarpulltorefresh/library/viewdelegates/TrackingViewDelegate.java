@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.library.viewdelegates;
+
+import android.view.View;
+
+/**
+ * A {@link ViewDelegate} which is told when its View scrolls, rather than querying the View on
+ * every touch. Implementations listen to the View's scroll callbacks in
+ * {@link #onStartTracking(View)} and call {@link #setAtTop(boolean)} whenever it changes, so that
+ * {@link #isReadyForPull(View, float, float)} only needs to read the last state.
+ * <p/>
+ * Each instance tracks a single View, so a new instance must be used for every View. In
+ * particular, an instance passed to {@code useViewDelegate(Class, ViewDelegate)} is shared by
+ * every refreshable View of that class, so only do so when there is a single such View.
+ */
+public abstract class TrackingViewDelegate implements ViewDelegate {
+
+    private View mTrackedView;
+    private boolean mIsAtTop = true;
+
+    /**
+     * Start tracking {@code view}. This is called by the library when the view is made
+     * refreshable.
+     *
+     * @throws IllegalStateException if this instance is already tracking a different View, such
+     *         as when one instance has been set for a View class with more than one refreshable
+     *         View.
+     */
+    public final void startTracking(View view) {
+        if (mTrackedView == view) {
+            return;
+        }
+        if (mTrackedView != null) {
+            throw new IllegalStateException("TrackingViewDelegate instances can only be used with "
+                    + "one View, but " + view + " was added while tracking " + mTrackedView
+                    + ". Use a new instance for each View.");
+        }
+        mTrackedView = view;
+        onStartTracking(view);
+    }
+
+    /**
+     * Stop tracking the current View. This is called by the library when the view is no longer
+     * refreshable.
+     */
+    public final void stopTracking() {
+        if (mTrackedView != null) {
+            onStopTracking(mTrackedView);
+            mTrackedView = null;
+        }
+    }
+
+    /**
+     * @return true if the tracked View was scrolled to the top when it last scrolled.
+     */
+    public final boolean isAtTop() {
+        return mIsAtTop;
+    }
+
+    @Override
+    public boolean isReadyForPull(View view, float x, float y) {
+        return isAtTop();
+    }
+
+    /**
+     * Update whether the tracked View is scrolled to the top.
+     */
+    protected final void setAtTop(boolean atTop) {
+        mIsAtTop = atTop;
+    }
+
+    /**
+     * Add any listeners to {@code view}, and set the initial state using
+     * {@link #setAtTop(boolean)}.
+     */
+    protected abstract void onStartTracking(View view);
+
+    /**
+     * Remove any listeners added in {@link #onStartTracking(View)}.
+     */
+    protected abstract void onStopTracking(View view);
+}
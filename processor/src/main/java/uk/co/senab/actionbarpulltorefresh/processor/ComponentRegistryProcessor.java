@@ -0,0 +1,277 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package uk.co.senab.actionbarpulltorefresh.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates {@value #REGISTRY_CLASS}, a ComponentRegistry which can create every class annotated
+ * with {@code @PullToRefreshComponent} without reflection.
+ * <p/>
+ * The registry is generated into the package given by the {@value #OPTION_REGISTRY_PACKAGE}
+ * option ({@code -A}{@value #OPTION_REGISTRY_PACKAGE}{@code =com.example}). If it is not given,
+ * the longest package which contains all of the annotated classes is used. Modules which are
+ * built into the same app should make sure that these differ, so that their registries do not
+ * clash.
+ * <p/>
+ * This processor only references the library's types by name, so it does not depend on the
+ * library (which is an Android library project).
+ */
+@SupportedAnnotationTypes(ComponentRegistryProcessor.ANNOTATION_NAME)
+@SupportedOptions(ComponentRegistryProcessor.OPTION_REGISTRY_PACKAGE)
+public class ComponentRegistryProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION_NAME
+            = "uk.co.senab.actionbarpulltorefresh.library.annotations.PullToRefreshComponent";
+
+    static final String OPTION_REGISTRY_PACKAGE = "ptr.registryPackage";
+    static final String REGISTRY_CLASS = "GeneratedComponentRegistry";
+
+    private static final String COMPONENT_REGISTRY
+            = "uk.co.senab.actionbarpulltorefresh.library.ComponentRegistry";
+    private static final String VIEW_DELEGATE
+            = "uk.co.senab.actionbarpulltorefresh.library.viewdelegates.ViewDelegate";
+    private static final String HEADER_TRANSFORMER
+            = "uk.co.senab.actionbarpulltorefresh.library.HeaderTransformer";
+
+    private final List<TypeElement> mViewDelegates = new ArrayList<TypeElement>();
+    private final List<TypeElement> mHeaderTransformers = new ArrayList<TypeElement>();
+    private boolean mRegistryWritten;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeElement annotation = processingEnv.getElementUtils()
+                .getTypeElement(ANNOTATION_NAME);
+        if (annotation == null || roundEnv.processingOver()) {
+            return false;
+        }
+
+        final Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(annotation);
+        if (elements.isEmpty()) {
+            return false;
+        }
+
+        // The registry is written once, so it can't include classes generated in later rounds
+        if (mRegistryWritten) {
+            for (Element element : elements) {
+                error(element, "@PullToRefreshComponent classes must not be generated by "
+                        + "another annotation processor");
+            }
+            return true;
+        }
+
+        for (Element element : elements) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@PullToRefreshComponent can only be applied to classes");
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) element;
+            if (!checkInstantiable(type)) {
+                continue;
+            }
+
+            final boolean isDelegate = isSubtype(type, VIEW_DELEGATE);
+            final boolean isTransformer = isSubtype(type, HEADER_TRANSFORMER);
+            if (isDelegate) {
+                mViewDelegates.add(type);
+            }
+            if (isTransformer) {
+                mHeaderTransformers.add(type);
+            }
+            if (!isDelegate && !isTransformer) {
+                error(type, "@PullToRefreshComponent classes must implement ViewDelegate or "
+                        + "extend HeaderTransformer");
+            }
+        }
+
+        if (!mViewDelegates.isEmpty() || !mHeaderTransformers.isEmpty()) {
+            writeRegistry();
+            mRegistryWritten = true;
+        }
+        return true;
+    }
+
+    private boolean checkInstantiable(TypeElement type) {
+        final Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            error(type, "@PullToRefreshComponent classes must be public and not abstract");
+            return false;
+        }
+        if (type.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC)) {
+            error(type, "@PullToRefreshComponent nested classes must be static");
+            return false;
+        }
+
+        for (ExecutableElement constructor
+                : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()
+                    && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        error(type, "@PullToRefreshComponent classes must have a public no-argument constructor");
+        return false;
+    }
+
+    private boolean isSubtype(TypeElement type, String superTypeName) {
+        final TypeElement superType = processingEnv.getElementUtils()
+                .getTypeElement(superTypeName);
+        if (superType == null) {
+            return false;
+        }
+        final TypeMirror erased = processingEnv.getTypeUtils().erasure(superType.asType());
+        return processingEnv.getTypeUtils().isAssignable(type.asType(), erased);
+    }
+
+    /**
+     * @return The package to generate the registry into, or null if there isn't one.
+     */
+    private String getRegistryPackage() {
+        final String option = processingEnv.getOptions().get(OPTION_REGISTRY_PACKAGE);
+        if (option != null && option.length() > 0) {
+            return option;
+        }
+
+        // Otherwise find the longest package which contains every annotated class
+        String common = null;
+        for (Element type : collectOriginatingElements()) {
+            final String pkg = processingEnv.getElementUtils().getPackageOf(type)
+                    .getQualifiedName().toString();
+            common = common == null ? pkg : commonPackage(common, pkg);
+        }
+        return common != null && common.length() > 0 ? common : null;
+    }
+
+    static String commonPackage(String a, String b) {
+        final String[] aParts = a.split("\\.");
+        final String[] bParts = b.split("\\.");
+        final StringBuilder common = new StringBuilder();
+        for (int i = 0, z = Math.min(aParts.length, bParts.length); i < z; i++) {
+            if (!aParts[i].equals(bParts[i])) {
+                break;
+            }
+            if (i > 0) {
+                common.append('.');
+            }
+            common.append(aParts[i]);
+        }
+        return common.toString();
+    }
+
+    private void writeRegistry() {
+        final String registryPackage = getRegistryPackage();
+        if (registryPackage == null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "@PullToRefreshComponent classes do not share a package, so set one for "
+                            + REGISTRY_CLASS + " with -A" + OPTION_REGISTRY_PACKAGE + "=<package>");
+            return;
+        }
+
+        final StringBuilder source = new StringBuilder();
+        source.append("// Generated by ComponentRegistryProcessor. Do not modify!\n")
+                .append("package ").append(registryPackage).append(";\n\n")
+                .append("public final class ").append(REGISTRY_CLASS)
+                .append(" implements ").append(COMPONENT_REGISTRY).append(" {\n\n");
+
+        writeFactoryMethod(source, VIEW_DELEGATE, "newViewDelegate", mViewDelegates);
+        source.append('\n');
+        writeFactoryMethod(source, HEADER_TRANSFORMER, "newHeaderTransformer",
+                mHeaderTransformers);
+        source.append("}\n");
+
+        Writer writer = null;
+        try {
+            final JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                    registryPackage + "." + REGISTRY_CLASS,
+                    collectOriginatingElements());
+            writer = file.openWriter();
+            writer.write(source.toString());
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Cannot write " + REGISTRY_CLASS + ": " + e.getMessage());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    private void writeFactoryMethod(StringBuilder source, String returnType, String methodName,
+            List<TypeElement> types) {
+        source.append("    @Override\n")
+                .append("    public ").append(returnType).append(' ').append(methodName)
+                .append("(String className) {\n");
+
+        // Sort so that the generated source is stable between builds
+        final List<String> lines = new ArrayList<String>();
+        for (TypeElement type : types) {
+            // Keys are binary names, so that they match what would be passed to loadClass()
+            final String binaryName = processingEnv.getElementUtils().getBinaryName(type)
+                    .toString();
+            lines.add("        if (\"" + binaryName + "\".equals(className)) {\n"
+                    + "            return new " + type.getQualifiedName() + "();\n"
+                    + "        }\n");
+        }
+        Collections.sort(lines);
+        for (String line : lines) {
+            source.append(line);
+        }
+
+        source.append("        return null;\n")
+                .append("    }\n");
+    }
+
+    private Element[] collectOriginatingElements() {
+        final List<Element> elements = new ArrayList<Element>(mViewDelegates);
+        elements.addAll(mHeaderTransformers);
+        return elements.toArray(new Element[elements.size()]);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
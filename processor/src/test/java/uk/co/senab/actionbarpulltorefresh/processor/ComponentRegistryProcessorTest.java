@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 Chris Banes
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package uk.co.senab.actionbarpulltorefresh.processor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compiles small sources against stubs of the library's types, with the processor enabled.
+ */
+public class ComponentRegistryProcessorTest {
+
+    private static final String LIBRARY = "uk.co.senab.actionbarpulltorefresh.library";
+
+    private static final String[][] LIBRARY_STUBS = {
+            {LIBRARY + ".viewdelegates.ViewDelegate",
+                    "package " + LIBRARY + ".viewdelegates;\n"
+                            + "public interface ViewDelegate {}\n"},
+            {LIBRARY + ".HeaderTransformer",
+                    "package " + LIBRARY + ";\n"
+                            + "public abstract class HeaderTransformer {}\n"},
+            {LIBRARY + ".ComponentRegistry",
+                    "package " + LIBRARY + ";\n"
+                            + "public interface ComponentRegistry {\n"
+                            + "  " + LIBRARY + ".viewdelegates.ViewDelegate newViewDelegate(String n);\n"
+                            + "  HeaderTransformer newHeaderTransformer(String n);\n"
+                            + "}\n"},
+            {LIBRARY + ".annotations.PullToRefreshComponent",
+                    "package " + LIBRARY + ".annotations;\n"
+                            + "public @interface PullToRefreshComponent {}\n"},
+    };
+
+    private File mOutputDir;
+    private DiagnosticCollector<JavaFileObject> mDiagnostics;
+
+    @Before
+    public void setUp() throws IOException {
+        mOutputDir = File.createTempFile("processor-test", "");
+        assertTrue(mOutputDir.delete());
+        assertTrue(mOutputDir.mkdir());
+        mDiagnostics = new DiagnosticCollector<JavaFileObject>();
+    }
+
+    @After
+    public void tearDown() {
+        delete(mOutputDir);
+    }
+
+    @Test
+    public void generatesRegistryInCommonPackage() throws Exception {
+        assertTrue(compile(null,
+                delegate("com.example.app.list", "ListDelegate"),
+                transformer("com.example.app.header", "FancyTransformer")));
+
+        final Object registry = loadRegistry("com.example.app");
+        final Object delegate = invoke(registry, "newViewDelegate",
+                "com.example.app.list.ListDelegate");
+        assertEquals("com.example.app.list.ListDelegate", delegate.getClass().getName());
+
+        final Object transformer = invoke(registry, "newHeaderTransformer",
+                "com.example.app.header.FancyTransformer");
+        assertEquals("com.example.app.header.FancyTransformer", transformer.getClass().getName());
+    }
+
+    @Test
+    public void unknownNamesReturnNull() throws Exception {
+        assertTrue(compile(null, delegate("com.example", "ListDelegate")));
+
+        final Object registry = loadRegistry("com.example");
+        assertNull(invoke(registry, "newViewDelegate", "com.example.Other"));
+        assertNull(invoke(registry, "newHeaderTransformer", "com.example.ListDelegate"));
+    }
+
+    @Test
+    public void nestedClassesUseBinaryNames() throws Exception {
+        assertTrue(compile(null, source("com.example.Outer",
+                "package com.example;\n"
+                        + "public class Outer {\n"
+                        + "  @" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                        + "  public static class Inner implements "
+                        + LIBRARY + ".viewdelegates.ViewDelegate {}\n"
+                        + "}\n")));
+
+        final Object registry = loadRegistry("com.example");
+        assertNotNull(invoke(registry, "newViewDelegate", "com.example.Outer$Inner"));
+    }
+
+    @Test
+    public void optionOverridesPackage() throws Exception {
+        assertTrue(compile("org.example.registry", delegate("com.example", "ListDelegate")));
+
+        assertNotNull(loadRegistry("org.example.registry"));
+        assertFalse(new File(mOutputDir, "com/example/"
+                + ComponentRegistryProcessor.REGISTRY_CLASS + ".class").exists());
+    }
+
+    @Test
+    public void unrelatedPackagesRequireOption() throws Exception {
+        assertFalse(compile(null,
+                delegate("com.example", "ListDelegate"),
+                delegate("org.example", "GridDelegate")));
+        assertError("-A" + ComponentRegistryProcessor.OPTION_REGISTRY_PACKAGE);
+    }
+
+    @Test
+    public void rejectsClassesWithoutNoArgConstructor() throws Exception {
+        assertFalse(compile(null, source("com.example.ListDelegate",
+                "package com.example;\n"
+                        + "@" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                        + "public class ListDelegate implements "
+                        + LIBRARY + ".viewdelegates.ViewDelegate {\n"
+                        + "  public ListDelegate(int i) {}\n"
+                        + "}\n")));
+        assertError("public no-argument constructor");
+    }
+
+    @Test
+    public void rejectsNonPublicClasses() throws Exception {
+        assertFalse(compile(null, source("com.example.ListDelegate",
+                "package com.example;\n"
+                        + "@" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                        + "class ListDelegate implements "
+                        + LIBRARY + ".viewdelegates.ViewDelegate {}\n")));
+        assertError("must be public and not abstract");
+    }
+
+    @Test
+    public void rejectsOtherTypes() throws Exception {
+        assertFalse(compile(null, source("com.example.Thing",
+                "package com.example;\n"
+                        + "@" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                        + "public class Thing {}\n")));
+        assertError("must implement ViewDelegate or extend HeaderTransformer");
+    }
+
+    @Test
+    public void commonPackage() {
+        assertEquals("com.example", ComponentRegistryProcessor.commonPackage(
+                "com.example.a", "com.example.b"));
+        assertEquals("com.example", ComponentRegistryProcessor.commonPackage(
+                "com.example", "com.example.b"));
+        assertEquals("com", ComponentRegistryProcessor.commonPackage(
+                "com.example", "com.examples"));
+        assertEquals("", ComponentRegistryProcessor.commonPackage("com.example", "org.example"));
+    }
+
+    private boolean compile(String registryPackage, JavaFileObject... sources)
+            throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+                mDiagnostics, null, null);
+
+        final List<JavaFileObject> units = new ArrayList<JavaFileObject>();
+        for (String[] stub : LIBRARY_STUBS) {
+            units.add(source(stub[0], stub[1]));
+        }
+        units.addAll(Arrays.asList(sources));
+
+        final List<String> options = new ArrayList<String>(Arrays.asList(
+                "-d", mOutputDir.getPath(), "-s", mOutputDir.getPath()));
+        if (registryPackage != null) {
+            options.add("-A" + ComponentRegistryProcessor.OPTION_REGISTRY_PACKAGE + "="
+                    + registryPackage);
+        }
+
+        final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager,
+                mDiagnostics, options, null, units);
+        task.setProcessors(Collections.singletonList(new ComponentRegistryProcessor()));
+        final boolean success = task.call();
+        fileManager.close();
+        return success;
+    }
+
+    private Object loadRegistry(String registryPackage) throws Exception {
+        final ClassLoader loader = new URLClassLoader(new URL[]{mOutputDir.toURI().toURL()},
+                getClass().getClassLoader());
+        return loader.loadClass(registryPackage + "." + ComponentRegistryProcessor.REGISTRY_CLASS)
+                .getDeclaredConstructor().newInstance();
+    }
+
+    private static Object invoke(Object registry, String method, String className)
+            throws Exception {
+        final Method m = registry.getClass().getMethod(method, String.class);
+        return m.invoke(registry, className);
+    }
+
+    private void assertError(String message) {
+        for (Diagnostic<? extends JavaFileObject> diagnostic : mDiagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR
+                    && diagnostic.getMessage(null).contains(message)) {
+                return;
+            }
+        }
+        throw new AssertionError("No error containing '" + message + "' in "
+                + mDiagnostics.getDiagnostics());
+    }
+
+    private static JavaFileObject delegate(String pkg, String name) {
+        return source(pkg + "." + name, "package " + pkg + ";\n"
+                + "@" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                + "public class " + name + " implements "
+                + LIBRARY + ".viewdelegates.ViewDelegate {}\n");
+    }
+
+    private static JavaFileObject transformer(String pkg, String name) {
+        return source(pkg + "." + name, "package " + pkg + ";\n"
+                + "@" + LIBRARY + ".annotations.PullToRefreshComponent\n"
+                + "public class " + name + " extends " + LIBRARY + ".HeaderTransformer {}\n");
+    }
+
+    private static JavaFileObject source(String className, final String code) {
+        return new SimpleJavaFileObject(URI.create("string:///"
+                + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private static void delete(File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -29,6 +29,7 @@ import android.widget.TextView;
 
 import uk.co.senab.actionbarpulltorefresh.extras.actionbarcompat.PullToRefreshLayout;
 import uk.co.senab.actionbarpulltorefresh.library.ActionBarPullToRefresh;
+import uk.co.senab.actionbarpulltorefresh.library.RefreshCoordinator;
 import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
 
 /**
@@ -37,8 +38,19 @@ import uk.co.senab.actionbarpulltorefresh.library.listeners.OnRefreshListener;
 public class FragmentTabsViewPagerActivity extends ActionBarActivity {
     private static String EXTRA_TITLE = "extra_title";
 
+    /**
+     * All of the tabs display the same data, so they share a single refresh key
+     */
+    private static final String REFRESH_KEY = "sample_data";
+
     private FragmentTabPager mFragmentTabPager;
 
+    private final RefreshCoordinator mRefreshCoordinator = new RefreshCoordinator();
+
+    RefreshCoordinator getRefreshCoordinator() {
+        return mRefreshCoordinator;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -71,6 +83,7 @@ public class FragmentTabsViewPagerActivity extends ActionBarActivity {
             OnRefreshListener {
 
         private PullToRefreshLayout mPullToRefreshLayout;
+        private RefreshCoordinator mRefreshCoordinator;
 
         @Override
         public View onCreateView(LayoutInflater inflater, ViewGroup container,
@@ -80,9 +93,14 @@ public class FragmentTabsViewPagerActivity extends ActionBarActivity {
 
             // Now give the find the PullToRefreshLayout and set it up
             mPullToRefreshLayout = (PullToRefreshLayout) view.findViewById(R.id.ptr_layout);
+            mRefreshCoordinator = ((FragmentTabsViewPagerActivity) getActivity())
+                    .getRefreshCoordinator();
             ActionBarPullToRefresh.from(getActivity())
                     .allChildrenArePullable()
                     .listener(this)
+                    // Tabs which are pulled while another tab is refreshing will share its refresh
+                    .refreshCoordinator(mRefreshCoordinator, REFRESH_KEY)
+                    .useTouchRouter()
                     .setup(mPullToRefreshLayout);
 
             // Set title in Fragment for display purposes.
@@ -116,8 +134,9 @@ public class FragmentTabsViewPagerActivity extends ActionBarActivity {
                 protected void onPostExecute(Void result) {
                     super.onPostExecute(result);
 
-                    // Notify PullToRefreshLayout that the refresh has finished
-                    mPullToRefreshLayout.setRefreshComplete();
+                    // Notify every PullToRefreshLayout waiting on the key that the refresh has
+                    // finished. This layout may have been destroyed if the user swiped away
+                    mRefreshCoordinator.setRefreshComplete(REFRESH_KEY);
                 }
             }.execute();
         }